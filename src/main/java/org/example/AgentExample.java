@@ -1,6 +1,5 @@
 package org.example;
 
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.anthropic.AnthropicChatModel;
 import dev.langchain4j.service.AiServices;
 import org.springframework.context.annotation.Bean;
@@ -16,9 +15,8 @@ import org.springframework.context.annotation.Configuration;
  * for the Spring application context.
  * 
  * Key features:
- * - Creates TechnicalConsultantAgent bean with memory capabilities
+ * - Creates a stateless TechnicalConsultantAgent bean (no conversation memory)
  * - Integrates with the AnthropicChatModel (Claude AI)
- * - Provides 20-message conversation history
  * - Enables dependency injection throughout the application
  */
 @Configuration
@@ -28,7 +26,12 @@ public class AgentExample {
      * Creates and configures the TechnicalConsultantAgent bean
      * 
      * This method builds an AI agent using LangChain4j's AiServices builder,
-     * connecting it to the Claude AI model and providing conversation memory.
+     * connecting it to the Claude AI model.
+     * 
+     * The agent is stateless: it is shared by every user (e.g. ChatTools calls it for
+     * each analyzed document), so each call sends only its own system message and
+     * document. A shared memory window would add earlier, unrelated documents to every
+     * prompt and serialize all callers on the same memory.
      * 
      * @param claude The AnthropicChatModel bean (injected from Main.java)
      * @return TechnicalConsultantAgent instance ready for dependency injection
@@ -37,7 +40,6 @@ public class AgentExample {
     public TechnicalConsultantAgent technicalConsultantAgent(AnthropicChatModel claude) {
         return AiServices.builder(TechnicalConsultantAgent.class)
                 .chatModel(claude)
-                .chatMemory(MessageWindowChatMemory.withMaxMessages(20))
                 .build();
     }
 }
\ No newline at end of file
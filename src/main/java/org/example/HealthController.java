@@ -1,5 +1,11 @@
 package org.example;
 
+import org.example.service.ClaudeService;
+import org.example.service.ModelUsageTracker;
+import org.example.service.PdfProcessorService;
+import org.example.service.memory.ConversationStore;
+import org.example.service.pdf.PdfExtractionCache;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -19,6 +25,18 @@ import java.util.Map;
 @RestController
 public class HealthController {
     
+    @Autowired
+    private ClaudeService claudeService;
+    
+    @Autowired
+    private PdfExtractionCache pdfExtractionCache;
+    
+    @Autowired
+    private PdfProcessorService pdfProcessorService;
+    
+    @Autowired
+    private ModelUsageTracker modelUsageTracker;
+    
     /**
      * Health check endpoint that returns the current status of the application.
      * 
@@ -37,4 +55,71 @@ public class HealthController {
         
         return response;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Metrics endpoint exposing cache, memory, PDF worker and model usage statistics of the chat service.
+     * 
+     * @return A map of statistics grouped by component
+     */
+    @GetMapping("/health/metrics")
+    public Map<String, Object> metrics() {
+        ConversationStore.Stats stats = claudeService.getConversationStoreStats();
+        
+        Map<String, Object> conversations = new HashMap<>();
+        conversations.put("count", stats.conversationCount());
+        conversations.put("hitCount", stats.hitCount());
+        conversations.put("missCount", stats.missCount());
+        conversations.put("hitRate", stats.hitRate());
+        conversations.put("evictionCount", stats.evictionCount());
+        conversations.put("expirationCount", stats.expirationCount());
+        conversations.put("weightedSizeBytes", stats.weightedSizeBytes());
+        conversations.put("maxWeightBytes", stats.maxWeightBytes());
+        
+        PdfExtractionCache.Stats cacheStats = pdfExtractionCache.getStats();
+        
+        Map<String, Object> pdfCache = new HashMap<>();
+        pdfCache.put("enabled", pdfExtractionCache.isEnabled());
+        pdfCache.put("heapHits", cacheStats.heapHits());
+        pdfCache.put("diskHits", cacheStats.diskHits());
+        pdfCache.put("misses", cacheStats.misses());
+        pdfCache.put("hitRate", cacheStats.hitRate());
+        pdfCache.put("heapEntries", cacheStats.heapEntries());
+        pdfCache.put("heapBytes", cacheStats.heapBytes());
+        pdfCache.put("heapMaxBytes", cacheStats.heapMaxBytes());
+        pdfCache.put("diskBytes", cacheStats.diskBytes());
+        pdfCache.put("diskMaxBytes", cacheStats.diskMaxBytes());
+        
+        PdfProcessorService.WorkerStats workerStats = pdfProcessorService.getWorkerStats();
+        
+        Map<String, Object> pdfWorkers = new HashMap<>();
+        pdfWorkers.put("threads", workerStats.threads());
+        pdfWorkers.put("activeThreads", workerStats.activeThreads());
+        pdfWorkers.put("queuedExtractions", workerStats.queuedExtractions());
+        pdfWorkers.put("queueCapacity", workerStats.queueCapacity());
+        pdfWorkers.put("startedExtractions", workerStats.startedExtractions());
+        pdfWorkers.put("rejectedExtractions", workerStats.rejectedExtractions());
+        pdfWorkers.put("averageQueueWaitMs", workerStats.averageQueueWaitMs());
+        pdfWorkers.put("maxQueueWaitMs", workerStats.maxQueueWaitMs());
+        
+        // Per tool mode ("nested" or "raw"): average latency, model calls and tokens per turn
+        Map<String, Object> modelUsage = new HashMap<>();
+        modelUsageTracker.getStats().forEach((mode, modeStats) -> {
+            Map<String, Object> modeUsage = new HashMap<>();
+            modeUsage.put("turns", modeStats.turns());
+            modeUsage.put("averageLatencyMs", modeStats.averageLatencyMs());
+            modeUsage.put("averageModelCalls", modeStats.averageModelCalls());
+            modeUsage.put("averageInputTokens", modeStats.averageInputTokens());
+            modeUsage.put("averageOutputTokens", modeStats.averageOutputTokens());
+            modelUsage.put(mode, modeUsage);
+        });
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", Instant.now().toString());
+        response.put("conversations", conversations);
+        response.put("pdfCache", pdfCache);
+        response.put("pdfWorkers", pdfWorkers);
+        response.put("modelUsage", modelUsage);
+        
+        return response;
+    }
+}
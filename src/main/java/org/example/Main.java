@@ -4,6 +4,10 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import dev.langchain4j.model.anthropic.AnthropicChatModel;
+import dev.langchain4j.model.anthropic.AnthropicStreamingChatModel;
+import org.example.service.ModelUsageTracker;
+
+import java.util.List;
 
 /**
  * Main class - This is the entry point of the Spring Boot application.
@@ -32,10 +36,11 @@ public class Main {
      * @Bean annotation tells Spring that this method produces a bean to be managed
      * by the Spring container.
      * 
+     * @param modelUsageTracker Listener counting the model calls and tokens of each chat turn
      * @return Configured AnthropicChatModel instance
      */
     @Bean
-    public AnthropicChatModel claudeModel() {
+    public AnthropicChatModel claudeModel(ModelUsageTracker modelUsageTracker) {
         return AnthropicChatModel.builder()
                 // Get API key from environment variable for security
                 .apiKey(System.getenv("ANTHROPIC_API_KEY"))
@@ -49,7 +54,27 @@ public class Main {
                 // Set maximum tokens for response length
                 .maxTokens(1000)
                 
+                // Count model calls and tokens per chat turn
+                .listeners(List.of(modelUsageTracker))
+                
                 // Build the model instance
                 .build();
     }
-}
\ No newline at end of file
+    
+    /**
+     * Streaming Claude AI model configuration as a Spring Bean.
+     * Uses the same model settings as {@link #claudeModel()} but delivers the response
+     * token by token, which backs the Server-Sent Events chat endpoint.
+     * 
+     * @return Configured AnthropicStreamingChatModel instance
+     */
+    @Bean
+    public AnthropicStreamingChatModel claudeStreamingModel() {
+        return AnthropicStreamingChatModel.builder()
+                .apiKey(System.getenv("ANTHROPIC_API_KEY"))
+                .modelName("claude-3-5-sonnet-20241022")
+                .temperature(0.7)
+                .maxTokens(1000)
+                .build();
+    }
+}
@@ -85,13 +85,12 @@ public interface TechnicalConsultantAgent {
      * the annotation, the message is sent as-is to the AI.
      * 
      * This method is useful for:
-     * - Follow-up questions
-     * - Clarifications
+     * - One-off questions
      * - General discussion
      * - Any interaction that doesn't need special formatting
      * 
-     * Because the agent has memory (configured in AgentExample), it remembers
-     * previous conversations when you use this method.
+     * The agent is stateless (configured in AgentExample), so each call is
+     * answered on its own; include any needed context in the message.
      * 
      * @param userMessage Any message or question for the AI
      * @return The AI's response as a String
@@ -143,6 +142,55 @@ public interface TechnicalConsultantAgent {
     @UserMessage("{{prompt}}\n\nDocument content:\n{{documentText}}")
     String analyzeWithCustomPrompt(@V("prompt") String prompt, @V("documentText") String documentText);
 
+    /**
+     * analyzeDocumentPart method - Map step of the analysis of a long document
+     * 
+     * Documents longer than a single prompt are split into parts that are analyzed
+     * independently (and concurrently). Each call sees one part only, so the system
+     * message asks for notes on everything relevant to the task rather than a final
+     * answer; identifiers are kept verbatim so that the combine step can rely on them.
+     * 
+     * @param task The user's question, or the recap instructions
+     * @param part Number of this part (1-based)
+     * @param partCount Total number of parts
+     * @param documentText The text of this part
+     * @return Notes on this part that are relevant to the task
+     */
+    @SystemMessage("You are a professional document analyst. You are given one part of a longer document. Take concise notes on everything in this part that is relevant to the task. Keep names, dates, amounts, VINs, policy numbers and other identifiers verbatim. Do not speculate about the other parts. If nothing in this part is relevant, say so in one sentence.")
+    @UserMessage("Task: {{task}}\n\nPart {{part}} of {{partCount}} of the document:\n{{documentText}}")
+    String analyzeDocumentPart(@V("task") String task, @V("part") int part, @V("partCount") int partCount, 
+                               @V("documentText") String documentText);
+
+    /**
+     * combineDocumentAnalyses method - Reduce step of the analysis of a long document
+     * 
+     * Merges the notes returned by analyzeDocumentPart (in document order) into one
+     * answer to the task, as if the whole document had been read at once.
+     * 
+     * @param task The user's question, or the recap instructions
+     * @param partialAnalyses The notes on each part, labelled with their part number
+     * @return The answer to the task for the whole document
+     */
+    @SystemMessage("You are a professional document analyst. You are given notes taken on each part of a long document, in document order. Combine them into a single answer to the task, as if you had read the whole document. Remove repetitions and keep identifiers verbatim. If some parts could not be analyzed, mention it briefly.")
+    @UserMessage("Task: {{task}}\n\nNotes on the parts of the document:\n{{partialAnalyses}}")
+    String combineDocumentAnalyses(@V("task") String task, @V("partialAnalyses") String partialAnalyses);
+
+    /**
+     * answerFromPassages method - Answers a question from retrieved passages of a document
+     * 
+     * Used for questions about long documents: instead of the full text, only the
+     * passages most relevant to the question are sent, each labelled with its page.
+     * The system message asks for page references and for an explicit statement when
+     * the passages do not contain the answer, rather than a guess.
+     * 
+     * @param question The user's question about the document
+     * @param passages The relevant passages, each preceded by a [Page n] label
+     * @return AI's answer to the question, with page references
+     */
+    @SystemMessage("You are a professional document analyst. You are given the passages of a document that are most relevant to the user's question, each labelled with its page. Answer the question accurately and concisely from these passages and mention the page(s) the answer comes from. If the passages do not contain the answer, say that it was not found in the retrieved passages.")
+    @UserMessage("{{question}}\n\nRelevant passages:\n{{passages}}")
+    String answerFromPassages(@V("question") String question, @V("passages") String passages);
+
     /**
      * analyzeImage method - Analyzes image content with default comprehensive description
      * 
@@ -19,9 +19,13 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -68,6 +72,9 @@ public class ChatController {
     @Value("${chat.session.timeout.minutes:30}")
     private int sessionTimeoutMinutes;
     
+    @Value("${chat.stream.timeout-ms:180000}")
+    private long streamTimeoutMs;
+    
     // File validation constants
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
     private static final Set<String> ALLOWED_FILE_TYPES = Set.of(
@@ -92,7 +99,8 @@ public class ChatController {
      * @param message User's text message (required)
      * @param files Optional file uploads (PDFs, images)
      * @param conversationId Optional conversation ID for session tracking
-     * @return ResponseEntity with ChatResponse containing success or error details
+     * @return Future completing with a ResponseEntity containing success or error details;
+     *         the servlet thread is released while Claude processes the message
      */
     @PostMapping(value = "/message", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(
@@ -185,7 +193,7 @@ public class ChatController {
             )
         )
     })
-    public ResponseEntity<ChatResponse> processMessage(
+    public CompletableFuture<ResponseEntity<ChatResponse>> processMessage(
             @Parameter(
                 description = "User's natural language message (required, max 2000 characters)",
                 required = true,
@@ -239,27 +247,27 @@ public class ChatController {
                 logFileDetails(request.files());
             }
             
-            // Generate response using Claude AI (Step 2B: with tool calling)
-            ClaudeService.ClaudeResult result = claudeService.processMessage(request);
-            String responseText = result.getResponse();
-            List<String> toolsUsed = result.getToolsUsed();
-            
-            // Calculate processing time
-            long processingTime = System.currentTimeMillis() - startTime;
-            
-            // Build success response with tools used
-            ChatResponse response = ChatResponse.success(
-                responseText,
-                sessionId,
-                timestamp,
-                processingTime,
-                toolsUsed
-            );
-            
-            logger.info("Chat message processed successfully - conversationId: {}, processing time: {}ms", 
-                       sessionId, processingTime);
-            
-            return ResponseEntity.ok(response);
+            // Generate response using Claude AI off the servlet thread (tool calling included)
+            return claudeService.processMessageAsync(request)
+                .thenApply(result -> {
+                    // Calculate processing time
+                    long processingTime = System.currentTimeMillis() - startTime;
+                    
+                    // Build success response with tools used
+                    ChatResponse response = ChatResponse.success(
+                        result.getResponse(),
+                        sessionId,
+                        timestamp,
+                        processingTime,
+                        result.getToolsUsed()
+                    );
+                    
+                    logger.info("Chat message processed successfully - conversationId: {}, processing time: {}ms", 
+                               sessionId, processingTime);
+                    
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(error -> handleProcessingError(error, sessionId, timestamp, startTime));
             
         } catch (ValidationException e) {
             logger.warn("Chat request validation failed: {}", e.getMessage());
@@ -268,7 +276,7 @@ public class ChatController {
             
             // Determine if we have enough context for metadata
             if (e.hasMetadata()) {
-                return ResponseEntity.ok(
+                return CompletableFuture.completedFuture(ResponseEntity.ok(
                     ChatResponse.errorWithMetadata(
                         sessionId,
                         e.getErrorCode(),
@@ -276,18 +284,38 @@ public class ChatController {
                         timestamp,
                         processingTime
                     )
-                );
+                ));
             } else {
-                return ResponseEntity.ok(
+                return CompletableFuture.completedFuture(ResponseEntity.ok(
                     ChatResponse.error(
                         e.getErrorCode(),
                         e.getMessage(),
                         timestamp
                     )
-                );
+                ));
             }
             
-        } catch (ClaudeService.ClaudeServiceException e) {
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(handleProcessingError(e, sessionId, timestamp, startTime));
+        }
+    }
+    
+    /**
+     * Maps a failure of the Claude processing pipeline to an error ChatResponse
+     * 
+     * @param error The failure (possibly wrapped in a CompletionException)
+     * @param sessionId Conversation ID of the request
+     * @param timestamp Request timestamp
+     * @param startTime Request start time in milliseconds
+     * @return ResponseEntity with the error ChatResponse
+     */
+    private ResponseEntity<ChatResponse> handleProcessingError(Throwable error, String sessionId, 
+                                                               String timestamp, long startTime) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) 
+            ? error.getCause() 
+            : error;
+        
+        if (cause instanceof ClaudeService.ClaudeServiceException e) {
             logger.warn("Claude API call failed: {} - {}", e.getErrorCode(), e.getMessage());
             
             long processingTime = System.currentTimeMillis() - startTime;
@@ -301,17 +329,157 @@ public class ChatController {
                     processingTime
                 )
             );
+        }
+        
+        logger.error("Unexpected error processing chat message: {}", cause.getMessage(), cause);
+        
+        return ResponseEntity.ok(
+            ChatResponse.error(
+                "INTERNAL_ERROR",
+                "An unexpected error occurred while processing your message",
+                timestamp
+            )
+        );
+    }
+
+    /**
+     * POST endpoint for streaming chat responses as Server-Sent Events
+     * 
+     * Accepts the same input as {@code /message}, but returns immediately and streams
+     * the response while Claude generates it, so users see the first tokens without
+     * waiting for the full answer and no servlet thread is held during generation.
+     * 
+     * Emitted events:
+     * - token: {"text": "..."} partial response text
+     * - tool-start: {"id": "...", "tool": "..."} before a tool is executed
+     * - tool-end: {"id": "...", "tool": "..."} after a tool has executed
+     * - complete: ChatResponse with the full response text and tools used
+     * - error: ChatResponse with error details (validation or Claude failure)
+     * 
+     * @param message User's text message (required)
+     * @param files Optional file uploads (PDFs, images)
+     * @param conversationId Optional conversation ID for session tracking
+     * @return SseEmitter delivering the streamed response events
+     */
+    @PostMapping(value = "/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Stream a chat response as Server-Sent Events",
+        description = "Same input as /api/chat/message, but the response is streamed while it is generated. " +
+                     "Events: 'token' (partial text), 'tool-start' / 'tool-end' (tool execution), " +
+                     "'complete' (final ChatResponse) or 'error' (ChatResponse with error details)."
+    )
+    public SseEmitter streamMessage(
+            @Parameter(description = "User's natural language message (required, max 2000 characters)", required = true)
+            @RequestParam("message") String message,
+            
+            @Parameter(
+                description = "Optional file uploads (PDFs, images). Max 5 files, 10MB each",
+                required = false,
+                content = @Content(mediaType = MediaType.MULTIPART_FORM_DATA_VALUE)
+            )
+            @RequestParam(value = "files", required = false) List<MultipartFile> files,
+            
+            @Parameter(description = "Optional conversation ID for session tracking", required = false)
+            @RequestParam(value = "conversationId", required = false) String conversationId) {
+        
+        long startTime = System.currentTimeMillis();
+        String timestamp = Instant.now().toString();
+        
+        String sessionId = (conversationId != null && !conversationId.trim().isEmpty()) 
+            ? conversationId 
+            : UUID.randomUUID().toString();
+        
+        logger.info("Chat stream requested - conversationId: {}, message length: {}, files: {}", 
+                   sessionId, 
+                   message != null ? message.length() : 0,
+                   files != null ? files.size() : 0);
+        
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        
+        try {
+            ChatRequest request = new ChatRequest(message, files, sessionId);
+            validateChatRequest(request);
+            
+            if (request.hasFiles()) {
+                logFileDetails(request.files());
+            }
+            
+            claudeService.streamMessage(request, new ClaudeService.ChatStreamHandler() {
+                @Override
+                public void onToken(String token) {
+                    sendEvent(emitter, "token", Map.of("text", token));
+                }
+                
+                @Override
+                public void onToolStart(String toolId, String toolName) {
+                    sendEvent(emitter, "tool-start", Map.of("id", toolId, "tool", toolName));
+                }
+                
+                @Override
+                public void onToolEnd(String toolId, String toolName) {
+                    sendEvent(emitter, "tool-end", Map.of("id", toolId, "tool", toolName));
+                }
+                
+                @Override
+                public void onComplete(ClaudeService.ClaudeResult result) {
+                    long processingTime = System.currentTimeMillis() - startTime;
+                    sendEvent(emitter, "complete", ChatResponse.success(
+                        result.getResponse(), sessionId, timestamp, processingTime, result.getToolsUsed()));
+                    emitter.complete();
+                    
+                    logger.info("Chat stream completed - conversationId: {}, processing time: {}ms", 
+                               sessionId, processingTime);
+                }
+                
+                @Override
+                public void onError(ClaudeService.ClaudeServiceException error) {
+                    long processingTime = System.currentTimeMillis() - startTime;
+                    sendEvent(emitter, "error", ChatResponse.errorWithMetadata(
+                        sessionId, error.getErrorCode(), error.getMessage(), timestamp, processingTime));
+                    emitter.complete();
+                }
+            });
+            
+        } catch (ValidationException e) {
+            logger.warn("Chat stream request validation failed: {}", e.getMessage());
+            
+            long processingTime = System.currentTimeMillis() - startTime;
+            sendEvent(emitter, "error", e.hasMetadata()
+                ? ChatResponse.errorWithMetadata(sessionId, e.getErrorCode(), e.getMessage(), timestamp, processingTime)
+                : ChatResponse.error(e.getErrorCode(), e.getMessage(), timestamp));
+            emitter.complete();
+            
+        } catch (ClaudeService.ClaudeServiceException e) {
+            logger.warn("Claude stream could not be started: {} - {}", e.getErrorCode(), e.getMessage());
+            
+            long processingTime = System.currentTimeMillis() - startTime;
+            sendEvent(emitter, "error", ChatResponse.errorWithMetadata(
+                sessionId, e.getErrorCode(), e.getMessage(), timestamp, processingTime));
+            emitter.complete();
             
         } catch (Exception e) {
-            logger.error("Unexpected error processing chat message: {}", e.getMessage(), e);
+            logger.error("Unexpected error starting chat stream: {}", e.getMessage(), e);
             
-            return ResponseEntity.ok(
-                ChatResponse.error(
-                    "INTERNAL_ERROR",
-                    "An unexpected error occurred while processing your message",
-                    timestamp
-                )
-            );
+            sendEvent(emitter, "error", ChatResponse.error(
+                "INTERNAL_ERROR", "An unexpected error occurred while processing your message", timestamp));
+            emitter.complete();
+        }
+        
+        return emitter;
+    }
+
+    /**
+     * Sends a named Server-Sent Event, ignoring clients that have already disconnected
+     * 
+     * @param emitter The emitter for the stream
+     * @param eventName SSE event name
+     * @param data Event payload (serialized as JSON)
+     */
+    private void sendEvent(SseEmitter emitter, String eventName, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Could not send '{}' event - client disconnected: {}", eventName, e.getMessage());
         }
     }
 
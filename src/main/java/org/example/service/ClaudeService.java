@@ -1,11 +1,28 @@
 package org.example.service;
 
+import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.anthropic.AnthropicChatModel;
+import dev.langchain4j.model.anthropic.AnthropicStreamingChatModel;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 import org.example.dto.ChatRequest;
+import org.example.service.memory.LocalTokenCountEstimator;
+import org.example.service.memory.MappedLogChatMemoryStore;
+import org.example.service.memory.ConversationMailbox;
+import org.example.service.memory.ConversationStore;
+import org.example.service.memory.ConversationSummarizer;
+import org.example.service.memory.TokenBudgetChatMemory;
+import org.example.service.memory.WriteBackChatMemoryStore;
+import org.example.service.pdf.PassageRetriever;
+import org.example.service.pdf.StructuredFieldExtractor;
 import org.example.service.tools.ChatTools;
+import org.example.service.tools.ParallelToolExecutor;
+import org.example.service.tools.ToolInvocationContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,14 +32,22 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -50,9 +75,27 @@ public class ClaudeService {
     @Autowired
     private AnthropicChatModel claudeModel;
     
+    @Autowired
+    private AnthropicStreamingChatModel claudeStreamingModel;
+    
     @Autowired
     private ChatTools chatTools;
     
+    @Autowired
+    private LocalTokenCountEstimator tokenCountEstimator;
+    
+    @Autowired
+    private PassageRetriever passageRetriever;
+    
+    @Autowired
+    private StructuredFieldExtractor structuredFieldExtractor;
+    
+    @Autowired
+    private ModelUsageTracker modelUsageTracker;
+    
+    @Autowired
+    private ParallelToolExecutor parallelToolExecutor;
+    
     // Configuration values
     @Value("${claude.api.system-message}")
     private String systemMessage;
@@ -60,21 +103,128 @@ public class ClaudeService {
     @Value("${claude.memory.window-size:20}")
     private int memoryWindowSize;
     
+    @Value("${claude.memory.mode:tokens}")
+    private String memoryMode;
+    
+    @Value("${claude.memory.max-tokens:16000}")
+    private int memoryMaxTokens;
+    
+    @Value("${claude.memory.summary.trigger-tokens:8000}")
+    private int summaryTriggerTokens;
+    
+    @Value("${claude.memory.summary.keep-turns:2}")
+    private int summaryKeepTurns;
+    
+    @Value("${claude.memory.summary.max-concurrent:2}")
+    private int summaryMaxConcurrent;
+    
     @Value("${chat.session.timeout.minutes:30}")
     private int sessionTimeoutMinutes;
     
+    @Value("${claude.memory.expiry-tick-seconds:1}")
+    private int expiryTickSeconds;
+    
+    @Value("${claude.memory.store.max-bytes:67108864}")
+    private long memoryStoreMaxBytes;
+    
+    @Value("${claude.memory.store.expected-conversations:10000}")
+    private int memoryStoreExpectedConversations;
+    
+    @Value("${claude.memory.persistence.enabled:false}")
+    private boolean persistenceEnabled;
+    
+    @Value("${claude.memory.persistence.directory:${user.home}/.ai-agent/conversations}")
+    private String persistenceDirectory;
+    
+    @Value("${claude.memory.persistence.segment-size-mb:16}")
+    private int persistenceSegmentSizeMb;
+    
+    @Value("${claude.memory.persistence.maintenance-interval-seconds:60}")
+    private int persistenceMaintenanceIntervalSeconds;
+    
+    @Value("${chat.tools.deadline-ms:120000}")
+    private long toolDeadlineMs;
+    
+    @Value("${chat.inline-documents.enabled:false}")
+    private boolean inlineDocumentsEnabled;
+    
+    @Value("${chat.inline-documents.max-file-bytes:2097152}")
+    private long inlineDocumentsMaxFileBytes;
+    
+    @Value("${chat.inline-documents.max-characters:20000}")
+    private int inlineDocumentsMaxCharacters;
+    
+    @Value("${chat.async.enabled:true}")
+    private boolean asyncEnabled;
+    
+    @Value("${chat.async.virtual-threads:true}")
+    private boolean useVirtualThreads;
+    
+    @Value("${chat.async.max-threads:256}")
+    private int asyncMaxThreads;
+    
+    @Value("${chat.async.queue-capacity:1000}")
+    private int asyncQueueCapacity;
+    
+    @Value("${chat.conversation.max-queued-turns:3}")
+    private int maxQueuedTurns;
+    
+    @Value("${chat.conversation.turn-timeout-ms:180000}")
+    private long turnTimeoutMs;
+    
     // Conversation memory management
-    private final Map<String, ConversationMemory> conversationMemories = new ConcurrentHashMap<>();
+    // Capacity-bounded (W-TinyLFU) store with timing-wheel expiry
+    private ConversationStore conversationStore;
+    
+    // On-disk log the conversation memories are persisted to (null when persistence is disabled)
+    private MappedLogChatMemoryStore conversationLog;
+    // Buffers the memories' writes so the log receives one snapshot per turn
+    private WriteBackChatMemoryStore conversationLogBuffer;
     private final ScheduledExecutorService memoryCleanupScheduler = Executors.newScheduledThreadPool(1);
     
-    // Chat agent with system message
+    // Background summarization of long conversations (claude.memory.mode=summary only)
+    private ConversationSummarizer conversationSummarizer;
+    private ExecutorService summaryExecutor;
+    
+    // Serializes the turns of each conversation so they never interleave in its memory
+    private ConversationMailbox conversationMailbox;
+    
+    // Executor running the chat pipeline off the servlet threads (virtual threads when available)
+    private ExecutorService chatExecutor;
+    
+    // Long-lived chat agent shared by all conversations (memory resolved per conversationId)
     private ChatAgent chatAgent;
     
     /**
      * Chat agent interface for conversation handling
+     * 
+     * The memoryId selects the conversation memory through the ChatMemoryProvider,
+     * so a single agent instance can serve every conversation concurrently.
+     * ChatMemoryAccess lets the service drop the agent's reference to a memory once
+     * the conversation is expired or evicted from the store.
+     */
+    public interface ChatAgent extends ChatMemoryAccess {
+        String chat(@MemoryId String conversationId, @UserMessage String userMessage);
+        
+        TokenStream chatStream(@MemoryId String conversationId, @UserMessage String userMessage);
+    }
+    
+    /**
+     * Callback interface for streamed chat responses
+     * 
+     * Callbacks are invoked from the model's HTTP client threads, in event order.
+     * Exactly one of onComplete or onError is invoked at the end of the stream.
      */
-    public interface ChatAgent {
-        String chat(String userMessage);
+    public interface ChatStreamHandler {
+        void onToken(String token);
+        
+        void onToolStart(String toolId, String toolName);
+        
+        void onToolEnd(String toolId, String toolName);
+        
+        void onComplete(ClaudeResult result);
+        
+        void onError(ClaudeServiceException error);
     }
     
     /**
@@ -98,34 +248,6 @@ public class ClaudeService {
         }
     }
     
-    /**
-     * Wrapper class to track memory with timestamps for cleanup
-     */
-    private static class ConversationMemory {
-        private final MessageWindowChatMemory memory;
-        private final Instant createdAt;
-        private Instant lastAccessedAt;
-        
-        public ConversationMemory(int windowSize) {
-            this.memory = MessageWindowChatMemory.withMaxMessages(windowSize);
-            this.createdAt = Instant.now();
-            this.lastAccessedAt = Instant.now();
-        }
-        
-        public MessageWindowChatMemory getMemory() {
-            this.lastAccessedAt = Instant.now();
-            return memory;
-        }
-        
-        public boolean isExpired(int timeoutMinutes) {
-            return ChronoUnit.MINUTES.between(lastAccessedAt, Instant.now()) > timeoutMinutes;
-        }
-        
-        public Instant getLastAccessedAt() {
-            return lastAccessedAt;
-        }
-    }
-    
     /**
      * Initialize the service and start memory cleanup scheduler
      */
@@ -134,12 +256,22 @@ public class ClaudeService {
         try {
             validateApiConfiguration();
             initializeChatAgent();
+            initializeConversationLog();
+            initializeConversationStore();
+            conversationMailbox = new ConversationMailbox(maxQueuedTurns, turnTimeoutMs);
+            if ("summary".equalsIgnoreCase(memoryMode)) {
+                initializeSummarizer();
+            }
             startMemoryCleanupScheduler();
+            if (asyncEnabled) {
+                chatExecutor = createChatExecutor();
+            }
             
             // Run API investigation
             org.example.LangChain4jApiInvestigation.investigateAvailableApis();
             
-            logger.info("ClaudeService initialized successfully with memory window size: {}", memoryWindowSize);
+            logger.info("ClaudeService initialized successfully with memory mode: {} (window size: {}, max tokens: {})", 
+                       memoryMode, memoryWindowSize, memoryMaxTokens);
         } catch (Exception e) {
             logger.error("Failed to initialize ClaudeService: {}", e.getMessage(), e);
             throw new ClaudeServiceException("CLAUDE_INITIALIZATION_FAILED", 
@@ -166,34 +298,232 @@ public class ClaudeService {
     }
     
     /**
-     * Initializes the chat agent with system message
+     * Initializes the chat agent with system message, tools and per-conversation memory
+     * 
+     * The agent is built once: tool specifications and the proxy are derived a single
+     * time at startup, and each call picks up its conversation memory by memoryId.
+     * Independent tool calls of one response run in parallel (see ParallelToolExecutor).
      */
     private void initializeChatAgent() {
         try {
-            this.chatAgent = AiServices.builder(ChatAgent.class)
+            AiServices<ChatAgent> builder = AiServices.builder(ChatAgent.class)
                 .chatModel(claudeModel)
-                .systemMessageProvider(memoryId -> systemMessage)
-                .build();
+                .streamingChatModel(claudeStreamingModel)
+                .chatMemoryProvider(memoryId -> parallelToolExecutor.observe(
+                    chatTools.withToolAttachments(getOrCreateMemory(memoryId.toString()))))
+                .systemMessageProvider(memoryId -> systemMessage);
+            if (parallelToolExecutor.isEnabled()) {
+                builder.tools(parallelToolExecutor.toolExecutors(chatTools));
+            } else {
+                builder.tools(chatTools);
+            }
+            this.chatAgent = builder.build();
                 
-            logger.debug("Chat agent initialized with system message (tools available in conversation agents)");
+            logger.debug("Chat agent initialized with system message, tools and conversation memory provider");
         } catch (Exception e) {
             throw new ClaudeServiceException("CLAUDE_AGENT_INITIALIZATION_FAILED", 
                 "Failed to create chat agent: " + e.getMessage(), e);
         }
     }
     
+    /**
+     * Opens the on-disk conversation log when persistence is enabled
+     * 
+     * Conversations found in the log are not loaded here; each one is read the first
+     * time its conversationId is used again. Memories write to the log through a heap
+     * buffer that is persisted after each turn (see {@link #afterTurn}).
+     */
+    private void initializeConversationLog() {
+        if (!persistenceEnabled) {
+            logger.info("Conversation persistence disabled - memories are kept in memory only");
+            return;
+        }
+        conversationLog = new MappedLogChatMemoryStore(Path.of(persistenceDirectory), 
+            persistenceSegmentSizeMb * 1024 * 1024);
+        conversationLogBuffer = new WriteBackChatMemoryStore(conversationLog);
+    }
+    
+    /**
+     * Creates the conversation store bounding the heap held by conversation memories
+     * 
+     * Conversations removed from the store are also released by the chat agent, which
+     * otherwise keeps every memory it has resolved through the provider. The release is
+     * handed to the cleanup thread because evictions happen while the agent is resolving
+     * another conversation's memory inside its own map.
+     * 
+     * Only cleared conversations are deleted from the conversation log right away. Expired
+     * and evicted ones are written to disk and dropped from the log buffer; they are reloaded
+     * when the conversation continues, and the log maintenance deletes them once they have
+     * not been written for the session timeout.
+     */
+    private void initializeConversationStore() {
+        conversationStore = new ConversationStore(
+            memoryStoreMaxBytes,
+            memoryStoreExpectedConversations,
+            TimeUnit.MINUTES.toMillis(sessionTimeoutMinutes),
+            TimeUnit.SECONDS.toMillis(expiryTickSeconds),
+            this::createChatMemory,
+            (conversationId, memory, cause) -> {
+                if (conversationLogBuffer != null && cause == ConversationStore.RemovalCause.CLEARED) {
+                    conversationLogBuffer.deleteMessages(conversationId);
+                }
+                passageRetriever.removeConversation(conversationId);
+                memoryCleanupScheduler.execute(() -> {
+                    chatAgent.evictChatMemory(conversationId);
+                    if (conversationLogBuffer != null && cause != ConversationStore.RemovalCause.CLEARED) {
+                        conversationLogBuffer.release(conversationId);
+                    }
+                });
+            });
+        
+        logger.debug("Conversation store initialized - budget {} bytes, expected conversations {}", 
+                    memoryStoreMaxBytes, memoryStoreExpectedConversations);
+    }
+    
     /**
      * Starts the scheduled task for cleaning up expired conversation memories
+     * 
+     * The task advances the expiry wheel once per tick, so an expired conversation is
+     * reclaimed within about one tick of its timeout.
      */
     private void startMemoryCleanupScheduler() {
         memoryCleanupScheduler.scheduleWithFixedDelay(
             this::cleanupExpiredMemories,
-            sessionTimeoutMinutes, // Initial delay
-            sessionTimeoutMinutes / 2, // Run every half timeout period
-            TimeUnit.MINUTES
+            expiryTickSeconds, // Initial delay
+            expiryTickSeconds, // Run every tick
+            TimeUnit.SECONDS
         );
         
-        logger.debug("Memory cleanup scheduler started - cleanup every {} minutes", sessionTimeoutMinutes / 2);
+        if (conversationLog != null) {
+            memoryCleanupScheduler.scheduleWithFixedDelay(
+                this::maintainConversationLog,
+                persistenceMaintenanceIntervalSeconds,
+                persistenceMaintenanceIntervalSeconds,
+                TimeUnit.SECONDS
+            );
+        }
+        
+        logger.debug("Memory cleanup scheduler started - expiry wheel with {} buckets, tick {}s", 
+                    conversationStore.getExpiryBucketCount(), expiryTickSeconds);
+    }
+    
+    /**
+     * Creates the summarizer folding older turns of long conversations into a running summary
+     * 
+     * Summaries are best effort: when all summarizer threads are busy, a conversation is
+     * simply summarized after a later turn, and the token budget still applies meanwhile.
+     */
+    private void initializeSummarizer() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        summaryExecutor = new ThreadPoolExecutor(
+            summaryMaxConcurrent, summaryMaxConcurrent,
+            60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(summaryMaxConcurrent * 16),
+            runnable -> {
+                Thread thread = new Thread(runnable, "memory-summary-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        ((ThreadPoolExecutor) summaryExecutor).allowCoreThreadTimeOut(true);
+        
+        conversationSummarizer = new ConversationSummarizer(claudeModel, structuredFieldExtractor, summaryExecutor, 
+            summaryTriggerTokens, summaryKeepTurns);
+        
+        logger.info("Conversation summarization enabled - trigger {} tokens, keeping last {} turns", 
+                   summaryTriggerTokens, summaryKeepTurns);
+    }
+    
+    /**
+     * Creates the executor for asynchronous chat processing
+     * 
+     * The pipeline is I/O bound (Claude round trips, nested tool calls), so on a JVM with
+     * virtual threads every conversation gets its own virtual thread. On Java 17 a dedicated
+     * bounded pool of daemon threads is used instead, keeping servlet threads free.
+     * 
+     * @return ExecutorService for the chat pipeline
+     */
+    private ExecutorService createChatExecutor() {
+        if (useVirtualThreads) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                logger.info("Chat pipeline will run on virtual threads");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                logger.info("Virtual threads not available on Java {} - using bounded I/O executor", 
+                           Runtime.version().feature());
+            }
+        }
+        
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            asyncMaxThreads, asyncMaxThreads,
+            60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(asyncQueueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "chat-io-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        
+        logger.info("Chat pipeline will run on I/O executor - threads: {}, queue capacity: {}", 
+                   asyncMaxThreads, asyncQueueCapacity);
+        return executor;
+    }
+    
+    /**
+     * Processes a chat message asynchronously
+     * 
+     * Runs {@link #processMessage} on the chat executor so the calling servlet thread is
+     * released for the whole Claude round trip. When async execution is disabled the
+     * message is processed on the thread that starts the turn.
+     * 
+     * Turns of the same conversation are serialized through the conversation mailbox:
+     * a message sent while the previous one is still being answered waits for it, and
+     * a conversation with too many pending turns is rejected with CONVERSATION_BUSY, and the
+     * caller of a turn running longer than the turn timeout gets CLAUDE_API_TIMEOUT (the turn
+     * itself finishes, and the conversation's next turn waits for it).
+     * 
+     * @param request The chat request containing message, files, and conversationId
+     * @return Future completing with the ClaudeResult, or exceptionally with ClaudeServiceException
+     */
+    public CompletableFuture<ClaudeResult> processMessageAsync(ChatRequest request) {
+        try {
+            return conversationMailbox.submit(request.conversationId(), () -> startMessage(request))
+                .exceptionallyCompose(error -> CompletableFuture.failedFuture(error instanceof TimeoutException 
+                    ? new ClaudeServiceException("CLAUDE_API_TIMEOUT", 
+                        "Request timed out. Please try again", error) 
+                    : error));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(conversationBusy(request.conversationId(), e));
+        }
+    }
+    
+    /**
+     * Starts processing a message on the chat executor (or inline when async is disabled)
+     */
+    private CompletableFuture<ClaudeResult> startMessage(ChatRequest request) {
+        if (chatExecutor == null) {
+            try {
+                return CompletableFuture.completedFuture(processMessage(request));
+            } catch (ClaudeServiceException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        
+        try {
+            return CompletableFuture.supplyAsync(() -> processMessage(request), chatExecutor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Chat executor saturated - rejecting message for conversation: {}", request.conversationId());
+            return CompletableFuture.failedFuture(new ClaudeServiceException("CHAT_CAPACITY_EXCEEDED", 
+                "The service is handling too many conversations right now. Please try again shortly", e));
+        }
+    }
+    
+    private ClaudeServiceException conversationBusy(String conversationId, RejectedExecutionException e) {
+        logger.warn("Conversation {} has {} turns pending - rejecting message", conversationId, maxQueuedTurns);
+        return new ClaudeServiceException("CONVERSATION_BUSY", 
+            "A previous message in this conversation is still being processed. Please wait for its response", e);
     }
     
     /**
@@ -210,31 +540,24 @@ public class ClaudeService {
         logger.info("Processing chat message for conversation: {} - message length: {}, files: {}", 
                    conversationId, request.message().length(), request.getFileCount());
         
+        ToolInvocationContext toolContext = null;
+        ModelUsageTracker.TurnUsage usage = modelUsageTracker.startTurn();
         try {
-            // Get or create conversation memory
-            MessageWindowChatMemory memory = getOrCreateMemory(conversationId);
+            beginTurn(conversationId);
             
-            // Cache uploaded files for tool access and clear previous tool executions
+            // Bind uploaded files and a fresh tool ledger to this conversation turn
             Map<String, MultipartFile> conversationFiles = cacheUploadedFiles(request);
-            chatTools.setFileCache(conversationFiles);
-            chatTools.clearExecutedTools();
+            toolContext = chatTools.openContext(conversationId, conversationFiles, 
+                Duration.ofMillis(toolDeadlineMs));
             
             // Build the message with file information for tool calling
-            String enhancedMessage = buildEnhancedMessage(request);
+            String enhancedMessage = buildEnhancedMessage(request, toolContext);
             
-            // Create agent with memory and tools for this conversation
-            ChatAgent conversationAgent = AiServices.builder(ChatAgent.class)
-                .chatModel(claudeModel)
-                .tools(chatTools)
-                .chatMemoryProvider(memoryId -> memory)
-                .systemMessageProvider(memoryId -> systemMessage)
-                .build();
-            
-            // Send message to Claude
-            String response = conversationAgent.chat(enhancedMessage);
+            // Send message to Claude (memory is resolved from the conversationId)
+            String response = chatAgent.chat(conversationId, enhancedMessage);
             
-            // Get tools that were actually executed directly from ChatTools
-            List<String> toolsUsed = chatTools.getExecutedTools();
+            // Get tools that were actually executed during this turn
+            List<String> toolsUsed = toolContext.getExecutedTools();
             logger.debug("Tools executed during this request: {}", toolsUsed);
             
             long processingTime = System.currentTimeMillis() - startTime;
@@ -242,6 +565,12 @@ public class ClaudeService {
             logger.info("Claude response generated successfully for conversation: {} - processing time: {}ms, tools used: {}", 
                        conversationId, processingTime, toolsUsed);
             
+            // Model calls include those nested inside tools (compare tool modes in /health/metrics)
+            modelUsageTracker.recordTurn(usage, chatTools.getToolMode(), processingTime);
+            logger.info("Turn usage for conversation: {} - tool mode: {}, model calls: {}, input tokens: {}, output tokens: {}", 
+                       conversationId, chatTools.getToolMode(), usage.getModelCalls(), 
+                       usage.getInputTokens(), usage.getOutputTokens());
+            
             // Log response metadata (without sensitive content)
             logger.debug("Response length: {} characters", response.length());
             
@@ -254,20 +583,184 @@ public class ClaudeService {
             
             // Convert to appropriate service exception
             throw convertToServiceException(e, conversationId);
+            
+        } finally {
+            if (toolContext != null) {
+                chatTools.closeContext(toolContext);
+            }
+            modelUsageTracker.endTurn();
+            afterTurn(conversationId);
         }
     }
     
     /**
-     * Gets existing memory or creates new one for the conversation
+     * Processes a chat message and streams the response as it is generated
+     * 
+     * Follows the same pipeline as {@link #processMessage}, but returns as soon as the
+     * stream has been accepted; tokens, tool events and the final result are delivered to
+     * the handler. The stream starts once earlier turns of the conversation are finished,
+     * and the tool context stays bound until it completes or fails.
+     * 
+     * @param request The chat request containing message, files, and conversationId
+     * @param handler Receives token deltas, tool events and the final result
+     * @throws ClaudeServiceException if the conversation has too many pending turns
      */
-    private MessageWindowChatMemory getOrCreateMemory(String conversationId) {
-        ConversationMemory convMemory = conversationMemories.computeIfAbsent(conversationId, 
-            k -> {
-                logger.debug("Creating new conversation memory for ID: {}", conversationId);
-                return new ConversationMemory(memoryWindowSize);
-            });
+    public void streamMessage(ChatRequest request, ChatStreamHandler handler) {
+        try {
+            conversationMailbox.submit(request.conversationId(), () -> startStream(request, handler));
+        } catch (RejectedExecutionException e) {
+            throw conversationBusy(request.conversationId(), e);
+        }
+    }
+    
+    /**
+     * Starts streaming a turn
+     * 
+     * @return Future completing once the handler received onComplete or onError
+     */
+    private CompletableFuture<Void> startStream(ChatRequest request, ChatStreamHandler handler) {
+        long startTime = System.currentTimeMillis();
+        String conversationId = request.conversationId();
+        CompletableFuture<Void> streamDone = new CompletableFuture<>();
+        
+        logger.info("Streaming chat message for conversation: {} - message length: {}, files: {}", 
+                   conversationId, request.message().length(), request.getFileCount());
+        
+        ToolInvocationContext toolContext = null;
+        try {
+            beginTurn(conversationId);
+            
+            Map<String, MultipartFile> conversationFiles = cacheUploadedFiles(request);
+            ToolInvocationContext context = chatTools.openContext(conversationId, conversationFiles, 
+                Duration.ofMillis(toolDeadlineMs));
+            toolContext = context;
+            
+            String enhancedMessage = buildEnhancedMessage(request, context);
+            
+            chatAgent.chatStream(conversationId, enhancedMessage)
+                .onPartialResponse(handler::onToken)
+                .beforeToolExecution(before -> 
+                    handler.onToolStart(before.request().id(), before.request().name()))
+                .onToolExecuted(execution -> 
+                    handler.onToolEnd(execution.request().id(), execution.request().name()))
+                .onCompleteResponse(chatResponse -> {
+                    chatTools.closeContext(context);
+                    afterTurn(conversationId);
+                    List<String> toolsUsed = context.getExecutedTools();
+                    long processingTime = System.currentTimeMillis() - startTime;
+                    
+                    logger.info("Claude stream completed for conversation: {} - processing time: {}ms, tools used: {}", 
+                               conversationId, processingTime, toolsUsed);
+                    
+                    try {
+                        handler.onComplete(new ClaudeResult(chatResponse.aiMessage().text(), toolsUsed));
+                    } finally {
+                        streamDone.complete(null);
+                    }
+                })
+                .onError(error -> {
+                    chatTools.closeContext(context);
+                    afterTurn(conversationId);
+                    long processingTime = System.currentTimeMillis() - startTime;
+                    logger.error("Claude stream failed for conversation: {} - processing time: {}ms - error: {}", 
+                                conversationId, processingTime, error.getMessage(), error);
+                    
+                    Exception cause = error instanceof Exception ? (Exception) error : new RuntimeException(error);
+                    try {
+                        handler.onError(convertToServiceException(cause, conversationId));
+                    } finally {
+                        streamDone.complete(null);
+                    }
+                })
+                .start();
+            
+        } catch (Exception e) {
+            if (toolContext != null) {
+                chatTools.closeContext(toolContext);
+                afterTurn(conversationId);
+            }
+            logger.error("Failed to start Claude stream for conversation: {} - error: {}", 
+                        conversationId, e.getMessage(), e);
+            try {
+                handler.onError(convertToServiceException(e, conversationId));
+            } finally {
+                streamDone.complete(null);
+            }
+        }
         
-        return convMemory.getMemory();
+        return streamDone;
+    }
+    
+    /**
+     * Records the conversation's access and makes sure the turn runs on the memory held by the store
+     * 
+     * The agent resolves a memory through the provider only once, so this is where every
+     * turn refreshes the conversation's expiry and eviction frequency.
+     * 
+     * The agent keeps every memory it resolved until it is told to release it. Removals
+     * from the store release it on the cleanup thread, so a turn starting right after its
+     * conversation was removed could still find the removed memory in the agent; it is
+     * released here before the agent is called, and the provider resolves the memory
+     * from the store again.
+     */
+    private void beginTurn(String conversationId) {
+        if (!conversationStore.touch(conversationId)) {
+            chatAgent.evictChatMemory(conversationId);
+        }
+    }
+    
+    /**
+     * Updates the conversation's memory accounting once a turn has finished
+     * 
+     * Re-weighs the conversation in the store, hands the turn's messages to the cleanup
+     * thread to be written to the conversation log as one snapshot, and, in summary mode,
+     * hands long conversations to the background summarizer.
+     */
+    private void afterTurn(String conversationId) {
+        parallelToolExecutor.endTurn(conversationId);
+        conversationStore.refreshWeight(conversationId);
+        
+        if (conversationLogBuffer != null) {
+            try {
+                memoryCleanupScheduler.execute(() -> conversationLogBuffer.persist(conversationId));
+            } catch (RejectedExecutionException e) {
+                // Shutting down - written by the final persistAll
+            }
+        }
+        
+        if (conversationSummarizer != null 
+                && conversationStore.getIfPresent(conversationId) instanceof TokenBudgetChatMemory memory) {
+            conversationSummarizer.compactIfNeeded(memory);
+        }
+    }
+    
+    /**
+     * Gets existing memory or creates new one for the conversation
+     */
+    private ChatMemory getOrCreateMemory(String conversationId) {
+        return conversationStore.getOrCreate(conversationId);
+    }
+    
+    /**
+     * Creates the chat memory for a new conversation according to claude.memory.mode
+     * 
+     * - tokens: bounded by an estimated token budget (claude.memory.max-tokens), evicting
+     *   oldest turns first so large tool results do not linger
+     * - messages: fixed window of the last claude.memory.window-size messages
+     * - summary: token budget as in tokens mode, and older turns are additionally folded
+     *   into a running summary once claude.memory.summary.trigger-tokens is exceeded
+     */
+    private ChatMemory createChatMemory(String conversationId) {
+        if ("messages".equalsIgnoreCase(memoryMode)) {
+            MessageWindowChatMemory.Builder builder = MessageWindowChatMemory.builder()
+                .id(conversationId)
+                .maxMessages(memoryWindowSize);
+            if (conversationLog != null) {
+                builder.chatMemoryStore(conversationLogBuffer);
+            }
+            return builder.build();
+        }
+        return new TokenBudgetChatMemory(conversationId, memoryMaxTokens, tokenCountEstimator, conversationLogBuffer);
     }
     
     /**
@@ -297,13 +790,20 @@ public class ClaudeService {
     
     /**
      * Builds enhanced message with file information for tool calling
+     * 
+     * With chat.inline-documents.enabled, the text of small PDFs is included in the
+     * message itself, so Claude can answer in a single call instead of calling
+     * analyzePdf (which costs a tool round trip and a nested analysis call). Documents
+     * above the size thresholds, or only partially extracted, are left to the tools.
      */
-    private String buildEnhancedMessage(ChatRequest request) {
+    private String buildEnhancedMessage(ChatRequest request, ToolInvocationContext toolContext) {
         StringBuilder messageBuilder = new StringBuilder(request.message());
         
         if (request.hasFiles()) {
             messageBuilder.append("\n\n[UPLOADED FILES AVAILABLE FOR ANALYSIS:");
             
+            StringBuilder inlinedDocuments = new StringBuilder();
+            int inlinedCount = 0;
             for (MultipartFile file : request.files()) {
                 String filename = file.getOriginalFilename();
                 String contentType = file.getContentType();
@@ -315,16 +815,65 @@ public class ClaudeService {
                 messageBuilder.append("\n- File: ").append(filename)
                              .append(" (").append(contentType).append(")")
                              .append(" - Available at path: ").append(filePath);
+                
+                PdfProcessorService.PdfProcessingResult document = getInlineDocument(toolContext, filePath, file);
+                if (document != null) {
+                    messageBuilder.append(" - full text included below");
+                    inlinedDocuments.append("\n\n[TEXT OF ").append(filename)
+                                    .append(" (").append(document.getPageCount()).append(" pages):\n")
+                                    .append(document.getExtractedText())
+                                    .append("\n[END OF ").append(filename).append("]");
+                    inlinedCount++;
+                }
             }
             
-            messageBuilder.append("\nYou can use your analysis tools on these files if the user requests analysis.]");
+            messageBuilder.append("\nYou can use your analysis tools on these files if the user requests analysis.");
+            if (inlinedCount > 0) {
+                messageBuilder.append(" The full text of the files marked above is included in this message - " +
+                                      "answer questions about them directly from it instead of calling analyzePdf.");
+            }
+            messageBuilder.append("]").append(inlinedDocuments);
             
-            logger.debug("Enhanced message with {} files prepared for tool calling", request.files().size());
+            logger.debug("Enhanced message with {} files prepared for tool calling ({} inlined)", 
+                        request.files().size(), inlinedCount);
         }
         
         return messageBuilder.toString();
     }
     
+    /**
+     * Gets the extracted text of an uploaded PDF if it should be inlined into the message
+     * 
+     * @return The extraction, or null if the file is not a PDF, inlining is disabled, or the
+     *         document is too large (or could not be fully extracted)
+     */
+    private PdfProcessorService.PdfProcessingResult getInlineDocument(ToolInvocationContext toolContext, 
+                                                                      String filePath, MultipartFile file) {
+        String contentType = file.getContentType();
+        if (!inlineDocumentsEnabled || toolContext == null 
+                || contentType == null || !contentType.startsWith("application/pdf")
+                || file.getSize() > inlineDocumentsMaxFileBytes) {
+            return null;
+        }
+        
+        try {
+            PdfProcessorService.PdfProcessingResult document = chatTools.extractUploadedPdf(toolContext, filePath);
+            if (document.wasTruncated() || document.isPartial() 
+                    || document.getExtractedText().isBlank()
+                    || document.getFinalCharacterCount() > inlineDocumentsMaxCharacters) {
+                logger.debug("Not inlining {} - {} characters, truncated: {}, partial: {}", filePath, 
+                            document.getFinalCharacterCount(), document.wasTruncated(), document.isPartial());
+                return null;
+            }
+            logger.info("Inlining text of {} into the message - {} characters", filePath, document.getFinalCharacterCount());
+            return document;
+        } catch (Exception e) {
+            // The tools report extraction problems to the user if Claude calls them
+            logger.warn("Could not inline text of {}: {}", filePath, e.getMessage());
+            return null;
+        }
+    }
+    
     /**
      * Detects tool usage from Claude's response by analyzing actual execution markers
      * 
@@ -470,23 +1019,17 @@ public class ClaudeService {
     
     /**
      * Cleans up expired conversation memories
+     * 
+     * Only conversations whose expiry bucket came due are visited; conversations that
+     * were accessed since they were scheduled are rescheduled by the wheel instead.
      */
     private void cleanupExpiredMemories() {
         try {
-            int initialSize = conversationMemories.size();
-            
-            conversationMemories.entrySet().removeIf(entry -> {
-                boolean expired = entry.getValue().isExpired(sessionTimeoutMinutes);
-                if (expired) {
-                    logger.debug("Cleaning up expired memory for conversation: {}", entry.getKey());
-                }
-                return expired;
-            });
+            int removedCount = conversationStore.expire(System.currentTimeMillis());
             
-            int removedCount = initialSize - conversationMemories.size();
             if (removedCount > 0) {
                 logger.info("Cleaned up {} expired conversation memories. Active conversations: {}", 
-                           removedCount, conversationMemories.size());
+                           removedCount, conversationStore.size());
             }
             
         } catch (Exception e) {
@@ -494,19 +1037,47 @@ public class ClaudeService {
         }
     }
     
+    /**
+     * Flushes and compacts the conversation log
+     * 
+     * Conversations on disk that have not been written for the session timeout and are
+     * no longer in memory (e.g. left over from before a restart) are deleted first.
+     */
+    private void maintainConversationLog() {
+        try {
+            long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(sessionTimeoutMinutes);
+            int expired = conversationLog.expireOlderThan(cutoff, conversationStore::contains);
+            int compacted = conversationLog.compact();
+            conversationLog.flush();
+            
+            if (expired > 0 || compacted > 0) {
+                logger.info("Conversation log maintenance - {} conversations expired, {} segments compacted, {} conversations on disk", 
+                           expired, compacted, conversationLog.getConversationCount());
+            }
+        } catch (Exception e) {
+            logger.warn("Error during conversation log maintenance: {}", e.getMessage(), e);
+        }
+    }
+    
     /**
      * Gets the count of active conversations
      */
     public int getActiveConversationCount() {
-        return conversationMemories.size();
+        return conversationStore.size();
+    }
+    
+    /**
+     * Gets hit/miss/eviction statistics of the conversation store
+     */
+    public ConversationStore.Stats getConversationStoreStats() {
+        return conversationStore.getStats();
     }
     
     /**
      * Manually clears all conversation memories (for testing or admin purposes)
      */
     public void clearAllMemories() {
-        int count = conversationMemories.size();
-        conversationMemories.clear();
+        int count = conversationStore.clear();
         logger.info("Cleared {} conversation memories", count);
     }
     
@@ -525,6 +1096,25 @@ public class ClaudeService {
             memoryCleanupScheduler.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        if (chatExecutor != null) {
+            chatExecutor.shutdown();
+            try {
+                if (!chatExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    chatExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                chatExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (summaryExecutor != null) {
+            summaryExecutor.shutdownNow();
+        }
+        if (conversationLog != null) {
+            int written = conversationLogBuffer.persistAll();
+            logger.debug("Wrote {} buffered conversations to the conversation log", written);
+            conversationLog.close();
+        }
         logger.info("ClaudeService shutdown complete");
     }
     
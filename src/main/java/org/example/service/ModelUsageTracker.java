@@ -0,0 +1,160 @@
+package org.example.service;
+
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.output.TokenUsage;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * ModelUsageTracker - Counts the model calls and tokens spent on each chat turn
+ *
+ * Registered as a listener of the (non-streaming) Claude model, so it sees the calls of
+ * the chat agent as well as the calls nested inside tools (document analysis, image
+ * analysis). Calls are attributed to the turn bound to the calling thread; work handed
+ * to other threads is attributed by wrapping it with {@link #propagate(Supplier)}.
+ *
+ * Completed turns are aggregated per tool mode ("nested" or "raw"), so the latency and
+ * token cost of both modes can be compared in /health/metrics. Streamed turns are not
+ * tracked: their model callbacks run on the HTTP client threads.
+ */
+@Component
+public class ModelUsageTracker implements ChatModelListener {
+
+    private final ThreadLocal<TurnUsage> currentTurn = new ThreadLocal<>();
+    private final Map<String, ModeTotals> totalsByMode = new ConcurrentHashMap<>();
+
+    /**
+     * Model calls and tokens of one turn
+     */
+    public static class TurnUsage {
+        private final AtomicInteger modelCalls = new AtomicInteger();
+        private final AtomicLong inputTokens = new AtomicLong();
+        private final AtomicLong outputTokens = new AtomicLong();
+
+        void add(TokenUsage usage) {
+            modelCalls.incrementAndGet();
+            if (usage != null) {
+                inputTokens.addAndGet(usage.inputTokenCount() != null ? usage.inputTokenCount() : 0);
+                outputTokens.addAndGet(usage.outputTokenCount() != null ? usage.outputTokenCount() : 0);
+            }
+        }
+
+        public int getModelCalls() {
+            return modelCalls.get();
+        }
+
+        public long getInputTokens() {
+            return inputTokens.get();
+        }
+
+        public long getOutputTokens() {
+            return outputTokens.get();
+        }
+    }
+
+    /**
+     * Aggregated usage of the turns run in one tool mode
+     */
+    public record ModeStats(long turns, long averageLatencyMs, double averageModelCalls,
+                            long averageInputTokens, long averageOutputTokens) {
+    }
+
+    private static class ModeTotals {
+        private final AtomicLong turns = new AtomicLong();
+        private final AtomicLong latencyMs = new AtomicLong();
+        private final AtomicLong modelCalls = new AtomicLong();
+        private final AtomicLong inputTokens = new AtomicLong();
+        private final AtomicLong outputTokens = new AtomicLong();
+
+        ModeStats snapshot() {
+            long count = Math.max(1, turns.get());
+            return new ModeStats(turns.get(), latencyMs.get() / count, (double) modelCalls.get() / count,
+                inputTokens.get() / count, outputTokens.get() / count);
+        }
+    }
+
+    /**
+     * Binds a new turn to the calling thread
+     *
+     * @return The usage of the turn, filled in as model calls complete
+     */
+    public TurnUsage startTurn() {
+        TurnUsage usage = new TurnUsage();
+        currentTurn.set(usage);
+        return usage;
+    }
+
+    /**
+     * Adds a completed turn to the totals of its tool mode
+     *
+     * @param usage The usage returned by {@link #startTurn()}
+     * @param mode The tool mode the turn ran in
+     * @param latencyMs End-to-end latency of the turn
+     */
+    public void recordTurn(TurnUsage usage, String mode, long latencyMs) {
+        ModeTotals totals = totalsByMode.computeIfAbsent(mode, key -> new ModeTotals());
+        totals.turns.incrementAndGet();
+        totals.latencyMs.addAndGet(latencyMs);
+        totals.modelCalls.addAndGet(usage.getModelCalls());
+        totals.inputTokens.addAndGet(usage.getInputTokens());
+        totals.outputTokens.addAndGet(usage.getOutputTokens());
+    }
+
+    /**
+     * Unbinds the turn from the calling thread
+     */
+    public void endTurn() {
+        currentTurn.remove();
+    }
+
+    /**
+     * Wraps work so that the model calls it makes on another thread count towards the calling thread's turn
+     *
+     * @param task The work
+     * @return The wrapped work (the task itself if no turn is bound)
+     */
+    public <T> Supplier<T> propagate(Supplier<T> task) {
+        TurnUsage usage = currentTurn.get();
+        if (usage == null) {
+            return task;
+        }
+        return () -> {
+            TurnUsage previous = currentTurn.get();
+            currentTurn.set(usage);
+            try {
+                return task.get();
+            } finally {
+                if (previous != null) {
+                    currentTurn.set(previous);
+                } else {
+                    currentTurn.remove();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        TurnUsage usage = currentTurn.get();
+        if (usage != null) {
+            usage.add(responseContext.chatResponse().tokenUsage());
+        }
+    }
+
+    /**
+     * Gets the aggregated usage per tool mode
+     *
+     * @return Stats keyed by mode
+     */
+    public Map<String, ModeStats> getStats() {
+        Map<String, ModeStats> stats = new ConcurrentHashMap<>();
+        totalsByMode.forEach((mode, totals) -> stats.put(mode, totals.snapshot()));
+        return stats;
+    }
+}
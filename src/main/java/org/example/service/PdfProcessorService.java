@@ -1,15 +1,48 @@
 package org.example.service;
 
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.example.service.pdf.PdfExtractionCache;
+import org.example.service.pdf.PdfTextCleaner;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.regex.Pattern;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * PdfProcessorService - Service for processing PDF files and extracting text content
@@ -18,10 +51,19 @@ import java.util.regex.Pattern;
  * error handling, text cleaning, and memory protection features.
  * 
  * Key features:
- * - Multi-page PDF text extraction
+ * - Extraction runs on a dedicated worker pool sized to the cores, with a bounded queue;
+ *   when the queue is full requests are rejected at once (PdfBusyException) instead of
+ *   piling up CPU-bound work on request threads
+ * - Page-by-page PDF text extraction that stops once the character limit is reached
+ * - Parallel extraction of page ranges for large documents on a bounded fork-join pool
+ * - Documents are parsed from a temp file with temp-file-backed PDFBox buffers, so the
+ *   upload is never held in the heap as a whole
  * - Text cleaning and formatting
  * - Error handling for corrupted and password-protected PDFs
  * - Memory protection with character limits
+ * - Page budget and extraction deadline: oversized or pathological documents yield a
+ *   partial result instead of occupying an extraction thread indefinitely
+ * - Content-addressed result cache (repeated documents skip PDFBox)
  * - Comprehensive logging
  */
 @Service
@@ -31,23 +73,371 @@ public class PdfProcessorService {
     
     // Constants for text processing
     private static final int MAX_TEXT_LENGTH = 50000; // 50K characters limit
-    private static final Pattern EXCESSIVE_WHITESPACE = Pattern.compile("\\s{3,}");
-    private static final Pattern MULTIPLE_NEWLINES = Pattern.compile("\n{3,}");
-    private static final Pattern TAB_PATTERN = Pattern.compile("\t+");
+    
+    /** Character limit of {@link #extractTextFromPdf(MultipartFile)} */
+    public static final int DEFAULT_CHARACTER_LIMIT = MAX_TEXT_LENGTH;
+    
+    @Autowired
+    private PdfExtractionCache extractionCache;
+    
+    @Value("${pdf.processing.max-pages:500}")
+    private int maxPages;
+    
+    @Value("${pdf.processing.timeout-ms:30000}")
+    private long timeoutMs;
+    
+    @Value("${pdf.processing.temp-directory:${java.io.tmpdir}}")
+    private String tempDirectory;
+    
+    @Value("${pdf.processing.workers.threads:0}")
+    private int workerThreads;
+    
+    @Value("${pdf.processing.workers.queue-capacity:16}")
+    private int workerQueueCapacity;
+    
+    @Value("${pdf.processing.parallel.enabled:true}")
+    private boolean parallelEnabled;
+    
+    @Value("${pdf.processing.parallel.min-pages:64}")
+    private int parallelMinPages;
+    
+    @Value("${pdf.processing.parallel.threads:0}")
+    private int parallelThreads;
+    
+    @Value("${pdf.processing.parallel.chunk-pages:8}")
+    private int parallelChunkPages;
+    
+    private Path tempPath;
+    private StreamCacheCreateFunction streamCache;
+    private ForkJoinPool extractionPool;
+    private ThreadPoolExecutor workerExecutor;
+    
+    // Worker pool metrics
+    private final AtomicLong rejectedExtractions = new AtomicLong();
+    private final AtomicLong startedExtractions = new AtomicLong();
+    private final AtomicLong totalQueueWaitMs = new AtomicLong();
+    private final AtomicLong maxQueueWaitMs = new AtomicLong();
+
+    /**
+     * Snapshot of the extraction worker pool
+     */
+    public record WorkerStats(
+        int threads,
+        int activeThreads,
+        int queuedExtractions,
+        int queueCapacity,
+        long startedExtractions,
+        long rejectedExtractions,
+        long averageQueueWaitMs,
+        long maxQueueWaitMs
+    ) {
+    }
+
+    /**
+     * Initializes the temp file directory, the extraction workers and the parallel extraction pool
+     */
+    @PostConstruct
+    public void init() {
+        initializeTempDirectory();
+        initializeWorkers();
+        initializeParallelExtraction();
+    }
+
+    /**
+     * Creates the worker pool that runs uncached extractions
+     * 
+     * Requests waiting for a worker are bounded by the queue capacity; beyond that new
+     * requests are rejected rather than queued behind minutes of extraction work.
+     */
+    private void initializeWorkers() {
+        int threads = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+        workerQueueCapacity = Math.max(1, workerQueueCapacity);
+        AtomicInteger threadCounter = new AtomicInteger();
+        workerExecutor = new ThreadPoolExecutor(
+            threads, threads,
+            60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(workerQueueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "pdf-worker-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        workerExecutor.allowCoreThreadTimeOut(true);
+        
+        logger.info("PDF extraction workers ready - threads: {}, queue capacity: {}", threads, workerQueueCapacity);
+    }
+
+    /**
+     * Prepares the directory holding document copies and PDFBox scratch buffers
+     * 
+     * PDFBox buffers decoded streams in temp files there instead of in the heap.
+     */
+    private void initializeTempDirectory() {
+        tempPath = Path.of(tempDirectory);
+        try {
+            Files.createDirectories(tempPath);
+        } catch (IOException e) {
+            logger.warn("Cannot create PDF temp directory {} ({}) - using {}", 
+                       tempPath, e.getMessage(), System.getProperty("java.io.tmpdir"));
+            tempPath = Path.of(System.getProperty("java.io.tmpdir"));
+        }
+        streamCache = MemoryUsageSetting.setupTempFileOnly().setTempDir(tempPath.toFile()).streamCache;
+        logger.info("PDF documents will be parsed from temp files in {}", tempPath);
+    }
+
+    /**
+     * Creates the fork-join pool used for parallel page extraction
+     * 
+     * The pool is shared by all documents, so concurrent uploads never use more than
+     * the configured number of cores for text extraction.
+     */
+    private void initializeParallelExtraction() {
+        if (!parallelEnabled) {
+            logger.info("Parallel PDF extraction disabled");
+            return;
+        }
+        
+        int threads = parallelThreads > 0 ? parallelThreads : Runtime.getRuntime().availableProcessors();
+        if (threads < 2) {
+            logger.info("Parallel PDF extraction disabled - only one extraction thread available");
+            return;
+        }
+        
+        AtomicInteger threadCounter = new AtomicInteger();
+        extractionPool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("pdf-extract-" + threadCounter.incrementAndGet());
+            return thread;
+        }, null, false);
+        parallelChunkPages = Math.max(1, parallelChunkPages);
+        
+        logger.info("Parallel PDF extraction enabled - threads: {}, from {} pages, {} pages per range", 
+                   threads, parallelMinPages, parallelChunkPages);
+    }
 
     /**
      * Extracts and processes text from a PDF file
      * 
+     * Results are cached by the SHA-256 of the file content, so a document that was
+     * already extracted (under any name, in any conversation) is served from the cache.
+     * 
      * @param file The PDF file to process
      * @return PdfProcessingResult containing extracted text and metadata
      * @throws PdfProcessingException if processing fails
      */
     public PdfProcessingResult extractTextFromPdf(MultipartFile file) throws PdfProcessingException {
+        return extractTextFromPdf(file, MAX_TEXT_LENGTH);
+    }
+    
+    /**
+     * Extracts and processes text from a PDF file with a custom character limit
+     * 
+     * Used when the text is analyzed in several parts and more than the default
+     * MAX_TEXT_LENGTH characters are needed.
+     * 
+     * @param file The PDF file to process
+     * @param characterLimit Maximum number of characters of extracted text
+     * @return PdfProcessingResult containing extracted text and metadata
+     * @throws PdfProcessingException if processing fails
+     */
+    public PdfProcessingResult extractTextFromPdf(MultipartFile file, int characterLimit) throws PdfProcessingException {
+        String cacheKey = computeCacheKey(file, characterLimit);
+        PdfProcessingResult cached = getCached(cacheKey, file);
+        if (cached != null) {
+            return cached;
+        }
+        return cache(cacheKey, extractOnWorker(file, characterLimit));
+    }
+    
+    /**
+     * Starts extracting text from a PDF file in the background
+     * 
+     * The cache lookup and the extraction both run on the worker pool, so the caller
+     * returns at once. Used to extract uploads before a tool asks for them; the future
+     * can be cancelled while the extraction is still queued.
+     * 
+     * @param file The PDF file to process
+     * @param characterLimit Maximum number of characters of extracted text
+     * @return Future completed with the result, or failed with a PdfProcessingException
+     *         (a PdfBusyException if all workers are busy and the queue is full)
+     */
+    public CompletableFuture<PdfProcessingResult> extractTextFromPdfAsync(MultipartFile file, int characterLimit) {
+        CompletableFuture<PdfProcessingResult> future = new CompletableFuture<>();
+        long submittedAt = System.currentTimeMillis();
+        try {
+            workerExecutor.execute(() -> {
+                if (future.isDone()) {
+                    // Cancelled while queued
+                    return;
+                }
+                recordQueueWait(System.currentTimeMillis() - submittedAt);
+                try {
+                    String cacheKey = computeCacheKey(file, characterLimit);
+                    PdfProcessingResult cached = getCached(cacheKey, file);
+                    future.complete(cached != null ? cached : cache(cacheKey, extractUncached(file, characterLimit)));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedExtractions.incrementAndGet();
+            logger.debug("Background PDF extraction for file: {} rejected - all workers busy", file.getOriginalFilename());
+            future.completeExceptionally(
+                new PdfBusyException("The server is busy processing other documents - please try again shortly"));
+        }
+        return future;
+    }
+    
+    /**
+     * Computes the cache key of a document: its content hash, plus the character limit when it is not the default
+     * 
+     * @return The key, or null if the cache is disabled
+     */
+    private String computeCacheKey(MultipartFile file, int characterLimit) throws PdfProcessingException {
+        if (!extractionCache.isEnabled()) {
+            return null;
+        }
+        try (InputStream content = file.getInputStream()) {
+            String cacheKey = extractionCache.computeKey(content);
+            return characterLimit != MAX_TEXT_LENGTH ? cacheKey + "-" + characterLimit : cacheKey;
+        } catch (IOException e) {
+            logger.error("Failed to read PDF file: {}", file.getOriginalFilename(), e);
+            throw new PdfProcessingException(determineErrorMessage(e), e);
+        }
+    }
+    
+    private PdfProcessingResult getCached(String cacheKey, MultipartFile file) {
+        if (cacheKey == null) {
+            return null;
+        }
+        PdfProcessingResult cached = extractionCache.get(cacheKey);
+        if (cached != null) {
+            logger.info("PDF extraction cache hit for file: {} - pages: {}, characters: {}", 
+                       file.getOriginalFilename(), cached.getPageCount(), cached.getFinalCharacterCount());
+        }
+        return cached;
+    }
+    
+    private PdfProcessingResult cache(String cacheKey, PdfProcessingResult result) {
+        // A timeout depends on the load at the time, so the next request gets another try
+        if (cacheKey != null && result.getStopReason() != StopReason.TIMEOUT) {
+            extractionCache.put(cacheKey, result);
+        }
+        return result;
+    }
+    
+    /**
+     * Runs an uncached extraction on the worker pool and waits for its result
+     * 
+     * @param file The PDF file to process
+     * @param characterLimit Maximum number of characters of extracted text
+     * @return PdfProcessingResult containing extracted text and metadata
+     * @throws PdfBusyException if all workers are busy and the queue is full
+     * @throws PdfProcessingException if processing fails
+     */
+    private PdfProcessingResult extractOnWorker(MultipartFile file, int characterLimit) throws PdfProcessingException {
+        long submittedAt = System.currentTimeMillis();
+        Future<PdfProcessingResult> future;
+        try {
+            future = workerExecutor.submit(() -> {
+                recordQueueWait(System.currentTimeMillis() - submittedAt);
+                return extractUncached(file, characterLimit);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedExtractions.incrementAndGet();
+            logger.warn("Rejecting PDF extraction for file: {} - all {} workers busy and {} requests queued", 
+                       file.getOriginalFilename(), workerExecutor.getMaximumPoolSize(), workerExecutor.getQueue().size());
+            throw new PdfBusyException("The server is busy processing other documents - please try again shortly");
+        }
+        
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PdfProcessingException("PDF processing was interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PdfProcessingException processingException) {
+                throw processingException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new PdfProcessingException("Failed to extract text from PDF: " + cause.getMessage(), cause);
+        }
+    }
+
+    private void recordQueueWait(long waitMs) {
+        startedExtractions.incrementAndGet();
+        totalQueueWaitMs.addAndGet(waitMs);
+        maxQueueWaitMs.accumulateAndGet(waitMs, Math::max);
+        if (waitMs > 1000) {
+            logger.info("PDF extraction started after waiting {}ms for a worker", waitMs);
+        }
+    }
+
+    /**
+     * Gets a snapshot of the extraction worker pool
+     * 
+     * @return Pool size, current load and queue wait statistics
+     */
+    public WorkerStats getWorkerStats() {
+        long started = startedExtractions.get();
+        return new WorkerStats(
+            workerExecutor.getMaximumPoolSize(),
+            workerExecutor.getActiveCount(),
+            workerExecutor.getQueue().size(),
+            workerQueueCapacity,
+            started,
+            rejectedExtractions.get(),
+            started == 0 ? 0 : totalQueueWaitMs.get() / started,
+            maxQueueWaitMs.get()
+        );
+    }
+    
+    /**
+     * Extracts and processes text from a PDF file with PDFBox
+     * 
+     * @param file The PDF file to process
+     * @param characterLimit Maximum number of characters of extracted text
+     * @return PdfProcessingResult containing extracted text and metadata
+     * @throws PdfProcessingException if processing fails
+     */
+    private PdfProcessingResult extractUncached(MultipartFile file, int characterLimit) throws PdfProcessingException {
         logger.info("Starting PDF text extraction for file: {}", file.getOriginalFilename());
         
         long startTime = System.currentTimeMillis();
+        ExtractionDeadline deadline = new ExtractionDeadline(timeoutMs);
         
-        try (PDDocument document = Loader.loadPDF(file.getBytes())) {
+        Path pdfFile = null;
+        try {
+            pdfFile = copyToTempFile(file);
+            return extractUncached(file, pdfFile.toFile(), characterLimit, startTime, deadline);
+        } catch (IOException e) {
+            logger.error("Failed to process PDF file: {}", file.getOriginalFilename(), e);
+            
+            // Determine specific error type
+            String errorMessage = determineErrorMessage(e);
+            throw new PdfProcessingException(errorMessage, e);
+        } finally {
+            deleteTempFile(pdfFile);
+        }
+    }
+    
+    /**
+     * Extracts text from the loaded PDF content, serially or in parallel depending on its page count
+     * 
+     * At most maxPages pages are read, and extraction stops at the deadline; either way
+     * the pages read so far are returned as a partial result.
+     */
+    private PdfProcessingResult extractUncached(MultipartFile file, File pdfFile, int characterLimit, long startTime,
+                                                ExtractionDeadline deadline) 
+            throws PdfProcessingException, IOException {
+        try (PDDocument document = Loader.loadPDF(pdfFile, streamCache)) {
             
             // Check if PDF is password protected
             if (document.isEncrypted()) {
@@ -57,16 +447,31 @@ public class PdfProcessorService {
             
             // Get document metadata
             int pageCount = document.getNumberOfPages();
+            int pagesToRead = maxPages > 0 ? Math.min(pageCount, maxPages) : pageCount;
             logger.debug("PDF has {} pages", pageCount);
             
-            // Extract text from all pages
-            String rawText = extractTextFromAllPages(document);
-            
-            // Clean and format the extracted text
-            String cleanedText = cleanAndFormatText(rawText);
+            // Extract and clean text page by page until the character limit is exceeded
+            CleanedText collector = extractionPool != null && pagesToRead >= parallelMinPages
+                ? extractTextInParallel(pdfFile, pagesToRead, characterLimit, deadline)
+                : extractTextByPage(document, pagesToRead, characterLimit, deadline);
             
-            // Apply character limit for memory protection
-            String finalText = applyCharacterLimit(cleanedText);
+            // Character limit for memory protection, applied by the cleaner
+            String finalText = collector.getCleanedText();
+            StopReason stopReason;
+            if (collector.isTimedOut()) {
+                stopReason = StopReason.TIMEOUT;
+                logger.warn("PDF text extraction of {} stopped after {}ms at the processing timeout - {} of {} pages read", 
+                           file.getOriginalFilename(), timeoutMs, collector.getPagesRead(), pageCount);
+            } else if (collector.isLimitExceeded()) {
+                stopReason = StopReason.CHARACTER_LIMIT;
+                logger.info("Text truncated to {} characters due to length limit", finalText.length());
+            } else if (pagesToRead < pageCount) {
+                stopReason = StopReason.PAGE_LIMIT;
+                logger.warn("PDF {} has {} pages - only the first {} were read", 
+                           file.getOriginalFilename(), pageCount, pagesToRead);
+            } else {
+                stopReason = StopReason.NONE;
+            }
             
             long processingTime = System.currentTimeMillis() - startTime;
             
@@ -74,115 +479,147 @@ public class PdfProcessorService {
                 finalText,
                 pageCount,
                 finalText.length(),
-                rawText.length(),
-                processingTime
+                collector.getRawCharacterCount(),
+                processingTime,
+                collector.getPagesRead(),
+                collector.getPageOffsets(),
+                stopReason
             );
             
-            logger.info("PDF text extraction completed successfully - pages: {}, final characters: {}, processing time: {}ms", 
-                       pageCount, finalText.length(), processingTime);
+            logger.info("PDF text extraction completed successfully - pages: {}, pages read: {}, final characters: {}, processing time: {}ms", 
+                       pageCount, collector.getPagesRead(), finalText.length(), processingTime);
             
             return result;
-            
-        } catch (IOException e) {
-            logger.error("Failed to process PDF file: {}", file.getOriginalFilename(), e);
-            
-            // Determine specific error type
-            String errorMessage = determineErrorMessage(e);
-            throw new PdfProcessingException(errorMessage, e);
         }
     }
 
     /**
-     * Extracts text from all pages of a PDF document
+     * Extracts and cleans text page by page, stopping once the character limit is exceeded
+     * 
+     * Only the first characterLimit cleaned characters are kept by the character limit,
+     * so pages after that point are never extracted. The cleaned text is identical to
+     * cleaning the text of all pages at once and then applying the limit.
      * 
      * @param document The PDDocument to extract text from
-     * @return Raw extracted text from all pages
+     * @param pagesToRead Number of pages to read from the start of the document
+     * @param characterLimit Maximum number of characters of cleaned text
+     * @param deadline Time after which extraction stops with the pages completed so far
+     * @return The cleaned text and how much of the document was read
      * @throws IOException if text extraction fails
      */
-    private String extractTextFromAllPages(PDDocument document) throws IOException {
-        PDFTextStripper textStripper = new PDFTextStripper();
-        
-        // Configure text stripper for better extraction
-        textStripper.setSortByPosition(true);
-        textStripper.setLineSeparator("\n");
-        textStripper.setWordSeparator(" ");
+    private CleanedText extractTextByPage(PDDocument document, int pagesToRead, int characterLimit, 
+                                          ExtractionDeadline deadline) throws IOException {
+        PageTextCollector collector = new PageTextCollector(new CleanedText(characterLimit), deadline);
+        configureStripper(collector);
         
-        // Extract text from all pages (default behavior)
-        textStripper.setStartPage(1);
-        textStripper.setEndPage(document.getNumberOfPages());
+        collector.setStartPage(1);
+        collector.setEndPage(pagesToRead);
         
-        String extractedText = textStripper.getText(document);
+        CleanedText text = collector.extract(document);
         
-        logger.debug("Raw text extracted - length: {} characters", extractedText.length());
+        logger.debug("Text extracted from {} of {} pages - raw: {} characters, cleaned: {} characters", 
+                    text.getPagesRead(), document.getNumberOfPages(), 
+                    text.getRawCharacterCount(), text.getCleanedLength());
         
-        return extractedText;
+        return text;
     }
 
     /**
-     * Cleans and formats the extracted text
+     * Extracts and cleans text with page ranges processed in parallel
      * 
-     * Performs the following cleaning operations:
-     * - Normalizes whitespace (removes excessive spaces)
-     * - Reduces multiple newlines to maximum of 2
-     * - Converts tabs to single spaces
-     * - Trims leading and trailing whitespace
-     * - Removes control characters
+     * The document is split into ranges of parallelChunkPages pages. Up to one worker per
+     * pool thread loads its own copy of the document (PDFBox documents are not thread
+     * safe) and extracts ranges in order of their first page. The calling thread cleans
+     * the pages in page order as their ranges complete, so the result is identical to the
+     * serial path. Once the character limit is exceeded or the deadline has passed no
+     * further ranges are started, and ranges in progress are abandoned at the deadline.
      * 
-     * @param rawText The raw extracted text
-     * @return Cleaned and formatted text
+     * @param pdfFile The PDF file
+     * @param pageCount Number of pages to read from the start of the document
+     * @param characterLimit Maximum number of characters of cleaned text
+     * @param deadline Time after which extraction stops with the pages completed so far
+     * @return The cleaned text and how much of the document was read
+     * @throws IOException if text extraction fails
      */
-    private String cleanAndFormatText(String rawText) {
-        if (rawText == null || rawText.trim().isEmpty()) {
-            return "";
+    private CleanedText extractTextInParallel(File pdfFile, int pageCount, int characterLimit, 
+                                              ExtractionDeadline deadline) throws IOException {
+        ParallelExtraction extraction = new ParallelExtraction(pdfFile, streamCache, pageCount, parallelChunkPages, 
+            deadline);
+        int workers = Math.min(extractionPool.getParallelism(), extraction.rangeCount());
+        for (int i = 0; i < workers; i++) {
+            extractionPool.execute(extraction::runWorker);
         }
         
-        logger.debug("Starting text cleaning - original length: {}", rawText.length());
-        
-        String cleanedText = rawText;
-        
-        // Remove or replace control characters (except newlines and tabs)
-        cleanedText = cleanedText.replaceAll("[\\x00-\\x08\\x0B\\x0C\\x0E-\\x1F\\x7F]", "");
-        
-        // Convert tabs to single spaces
-        cleanedText = TAB_PATTERN.matcher(cleanedText).replaceAll(" ");
-        
-        // Reduce excessive whitespace (3 or more spaces) to 2 spaces
-        cleanedText = EXCESSIVE_WHITESPACE.matcher(cleanedText).replaceAll("  ");
-        
-        // Reduce multiple newlines (3 or more) to 2 newlines
-        cleanedText = MULTIPLE_NEWLINES.matcher(cleanedText).replaceAll("\n\n");
-        
-        // Trim leading and trailing whitespace
-        cleanedText = cleanedText.trim();
+        CleanedText text = new CleanedText(characterLimit);
+        try {
+            for (int range = 0; range < extraction.rangeCount() && !text.isLimitExceeded(); range++) {
+                String[] pages;
+                try {
+                    pages = extraction.awaitRange(range);
+                } catch (ExtractionTimeoutException e) {
+                    text.markTimedOut();
+                    break;
+                }
+                int firstPage = extraction.firstPageOf(range);
+                for (int i = 0; i < pages.length && !text.isLimitExceeded(); i++) {
+                    // Pages without content produce no text (and are skipped by the serial path too)
+                    if (pages[i] != null) {
+                        text.appendPage(pages[i], firstPage + i);
+                    }
+                }
+            }
+        } finally {
+            extraction.stop();
+        }
         
-        logger.debug("Text cleaning completed - cleaned length: {}", cleanedText.length());
+        logger.debug("Text extracted in parallel from {} of {} pages with {} workers - raw: {} characters, cleaned: {} characters", 
+                    text.getPagesRead(), pageCount, workers, 
+                    text.getRawCharacterCount(), text.getCleanedLength());
         
-        return cleanedText;
+        return text;
     }
 
     /**
-     * Applies character limit to prevent memory issues
+     * Streams an upload into a private temp file that PDFBox can read with random access
+     * 
+     * The multipart temp file itself is not exposed by the servlet API, and moving it with
+     * transferTo would take it away from later tool calls on the same upload. Copying
+     * through a stream keeps the heap cost at one buffer whatever the file size.
      * 
-     * @param text The text to limit
-     * @return Text limited to MAX_TEXT_LENGTH characters
+     * @param file The uploaded file
+     * @return Path of the copy (deleted by the caller)
+     * @throws IOException if the upload cannot be read or the copy cannot be written
      */
-    private String applyCharacterLimit(String text) {
-        if (text.length() <= MAX_TEXT_LENGTH) {
-            return text;
+    private Path copyToTempFile(MultipartFile file) throws IOException {
+        Path pdfFile = Files.createTempFile(tempPath, "pdf-extract-", ".pdf");
+        try (InputStream content = file.getInputStream()) {
+            Files.copy(content, pdfFile, StandardCopyOption.REPLACE_EXISTING);
+            return pdfFile;
+        } catch (IOException e) {
+            deleteTempFile(pdfFile);
+            throw e;
         }
-        
-        String limitedText = text.substring(0, MAX_TEXT_LENGTH);
-        
-        // Try to end at a word boundary to avoid cutting words in half
-        int lastSpaceIndex = limitedText.lastIndexOf(' ');
-        if (lastSpaceIndex > MAX_TEXT_LENGTH - 100) { // Only if space is reasonably close to limit
-            limitedText = limitedText.substring(0, lastSpaceIndex);
+    }
+
+    private void deleteTempFile(Path pdfFile) {
+        if (pdfFile == null) {
+            return;
         }
-        
-        logger.info("Text truncated from {} to {} characters due to length limit", 
-                   text.length(), limitedText.length());
-        
-        return limitedText;
+        try {
+            Files.deleteIfExists(pdfFile);
+        } catch (IOException e) {
+            logger.warn("Failed to delete PDF temp file {}: {}", pdfFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the text stripper settings shared by the serial and parallel paths
+     */
+    private static void configureStripper(PDFTextStripper stripper) {
+        // Configure text stripper for better extraction
+        stripper.setSortByPosition(true);
+        stripper.setLineSeparator("\n");
+        stripper.setWordSeparator(" ");
     }
 
     /**
@@ -207,6 +644,352 @@ public class PdfProcessorService {
         }
     }
 
+    /**
+     * Shuts down the extraction workers and the parallel extraction pool
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (workerExecutor != null) {
+            workerExecutor.shutdownNow();
+        }
+        if (extractionPool != null) {
+            extractionPool.shutdown();
+            try {
+                if (!extractionPool.awaitTermination(10, TimeUnit.SECONDS)) {
+                    extractionPool.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                extractionPool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Cleaned text of the pages extracted so far
+     * 
+     * Pages are cleaned as they are appended by a {@link PdfTextCleaner}, which handles
+     * whitespace runs across page boundaries, so pages must be appended in page order.
+     */
+    private static class CleanedText {
+        private final PdfTextCleaner cleaner;
+        private int rawCharacterCount;
+        private int pagesRead;
+        private int[] pageOffsets = new int[16];
+        private boolean timedOut;
+
+        CleanedText(int characterLimit) {
+            this.cleaner = new PdfTextCleaner(characterLimit);
+        }
+
+        void appendPage(CharSequence rawPageText, int pageNumber) {
+            rawCharacterCount += rawPageText.length();
+
+            // Pages skipped since the previous one (no content) start where this page starts
+            if (pageNumber > pageOffsets.length) {
+                pageOffsets = Arrays.copyOf(pageOffsets, Math.max(pageNumber, pageOffsets.length * 2));
+            }
+            Arrays.fill(pageOffsets, pagesRead, pageNumber, cleaner.length());
+            pagesRead = pageNumber;
+
+            cleaner.append(rawPageText);
+        }
+
+        /**
+         * Whether more cleaned characters than the limit were collected, so further pages are not needed
+         */
+        boolean isLimitExceeded() {
+            return cleaner.isLimitExceeded();
+        }
+
+        /**
+         * Records that extraction stopped at the deadline, before the remaining pages were read
+         */
+        void markTimedOut() {
+            timedOut = true;
+        }
+
+        boolean isTimedOut() {
+            return timedOut;
+        }
+
+        String getCleanedText() {
+            return cleaner.getText();
+        }
+
+        int getCleanedLength() {
+            return cleaner.length();
+        }
+
+        int getRawCharacterCount() {
+            return rawCharacterCount;
+        }
+
+        int getPagesRead() {
+            return pagesRead;
+        }
+
+        int[] getPageOffsets() {
+            return Arrays.copyOf(pageOffsets, pagesRead);
+        }
+    }
+
+    /**
+     * Text stripper that cleans the text of each page as soon as the page is extracted
+     * 
+     * Once the cleaned text exceeds its limit or the deadline has passed, the end page is
+     * lowered so that the remaining pages are skipped. A page still being processed at
+     * the deadline is abandoned.
+     */
+    private static class PageTextCollector extends DeadlineAwareStripper {
+        private final CleanedText text;
+        private final StringWriter pageOutput = new StringWriter();
+
+        PageTextCollector(CleanedText text, ExtractionDeadline deadline) {
+            super(deadline);
+            this.text = text;
+        }
+
+        CleanedText extract(PDDocument document) throws IOException {
+            try {
+                writeText(document, pageOutput);
+            } catch (ExtractionTimeoutException e) {
+                text.markTimedOut();
+            }
+            return text;
+        }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            super.endPage(page);
+            output.flush();
+
+            StringBuffer buffer = pageOutput.getBuffer();
+            text.appendPage(buffer, getCurrentPageNo());
+            buffer.setLength(0);
+
+            if (text.isLimitExceeded()) {
+                setEndPage(getCurrentPageNo());
+            } else if (getCurrentPageNo() < getEndPage() && deadline.isExpired()) {
+                text.markTimedOut();
+                setEndPage(getCurrentPageNo());
+            }
+        }
+    }
+
+    /**
+     * Text stripper that checks the extraction deadline while it processes content streams
+     * 
+     * A single page can hold arbitrarily large content streams, so checking between pages
+     * alone would not bound the time spent on a pathological document.
+     */
+    private abstract static class DeadlineAwareStripper extends PDFTextStripper {
+        // Operators processed between two clock reads
+        private static final int OPERATORS_PER_CHECK = 256;
+
+        protected final ExtractionDeadline deadline;
+        private int operatorsUntilCheck = OPERATORS_PER_CHECK;
+
+        DeadlineAwareStripper(ExtractionDeadline deadline) {
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+            if (--operatorsUntilCheck == 0) {
+                operatorsUntilCheck = OPERATORS_PER_CHECK;
+                if (deadline.isExpired()) {
+                    throw new ExtractionTimeoutException();
+                }
+            }
+            super.processOperator(operator, operands);
+        }
+    }
+
+    /**
+     * Text stripper that returns the raw text of each page in a page range
+     */
+    private static class PageRangeStripper extends DeadlineAwareStripper {
+        private final StringWriter pageOutput = new StringWriter();
+        private String[] pages;
+
+        PageRangeStripper(ExtractionDeadline deadline) {
+            super(deadline);
+        }
+
+        /**
+         * Extracts the raw text of a page range
+         * 
+         * @return Text of each page of the range, null for pages without content
+         */
+        String[] extract(PDDocument document, int firstPage, int lastPage) throws IOException {
+            pages = new String[lastPage - firstPage + 1];
+            setStartPage(firstPage);
+            setEndPage(lastPage);
+            writeText(document, pageOutput);
+            return pages;
+        }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            super.endPage(page);
+            output.flush();
+
+            StringBuffer buffer = pageOutput.getBuffer();
+            pages[getCurrentPageNo() - getStartPage()] = buffer.toString();
+            buffer.setLength(0);
+        }
+    }
+
+    /**
+     * State of one parallel extraction: the page ranges, their results and the stop flag
+     * 
+     * Workers claim ranges in ascending order, so the ranges the caller needs next are
+     * always the ones being extracted. Each range future is completed exactly once, with
+     * the page texts or with the failure of the worker that claimed it. Workers claim no
+     * further ranges once the deadline has passed; the caller stops waiting at the deadline.
+     */
+    private static class ParallelExtraction {
+        private final File pdfFile;
+        private final StreamCacheCreateFunction streamCache;
+        private final int pageCount;
+        private final int rangePages;
+        private final ExtractionDeadline deadline;
+        private final List<CompletableFuture<String[]>> ranges;
+        private final AtomicInteger nextRange = new AtomicInteger();
+        private final AtomicBoolean stopped = new AtomicBoolean();
+
+        ParallelExtraction(File pdfFile, StreamCacheCreateFunction streamCache, int pageCount, int rangePages,
+                           ExtractionDeadline deadline) {
+            this.pdfFile = pdfFile;
+            this.streamCache = streamCache;
+            this.pageCount = pageCount;
+            this.rangePages = rangePages;
+            this.deadline = deadline;
+            int rangeCount = (pageCount + rangePages - 1) / rangePages;
+            List<CompletableFuture<String[]>> ranges = new ArrayList<>(rangeCount);
+            for (int i = 0; i < rangeCount; i++) {
+                ranges.add(new CompletableFuture<>());
+            }
+            this.ranges = List.copyOf(ranges);
+        }
+
+        int rangeCount() {
+            return ranges.size();
+        }
+
+        int firstPageOf(int range) {
+            return range * rangePages + 1;
+        }
+
+        void stop() {
+            stopped.set(true);
+        }
+
+        /**
+         * Loads a private copy of the document and extracts ranges until none are left
+         */
+        void runWorker() {
+            if (isStopped()) {
+                // The caller no longer needs any range (and may have deleted the file)
+                return;
+            }
+            try (PDDocument document = Loader.loadPDF(pdfFile, streamCache)) {
+                PageRangeStripper stripper = new PageRangeStripper(deadline);
+                configureStripper(stripper);
+
+                int range;
+                while (!isStopped() && (range = nextRange.getAndIncrement()) < ranges.size()) {
+                    int firstPage = firstPageOf(range);
+                    try {
+                        ranges.get(range).complete(stripper.extract(document, firstPage,
+                            Math.min(pageCount, firstPage + rangePages - 1)));
+                    } catch (Throwable t) {
+                        ranges.get(range).completeExceptionally(t);
+                    }
+                }
+            } catch (Throwable t) {
+                // Without a document this worker fails the ranges it claims, so the caller never waits forever
+                int range;
+                while (!isStopped() && (range = nextRange.getAndIncrement()) < ranges.size()) {
+                    ranges.get(range).completeExceptionally(t);
+                }
+            }
+        }
+
+        private boolean isStopped() {
+            return stopped.get() || deadline.isExpired();
+        }
+
+        /**
+         * Waits for the page texts of a range
+         * 
+         * @throws ExtractionTimeoutException if the range was not extracted by the deadline
+         */
+        String[] awaitRange(int range) throws IOException {
+            try {
+                return ranges.get(range).get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw new ExtractionTimeoutException();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while extracting PDF text");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new IOException("Failed to extract PDF pages " + firstPageOf(range) + "+: " + cause, cause);
+            }
+        }
+    }
+
+    /**
+     * Time limit of one extraction, measured from the start of the request
+     */
+    private static class ExtractionDeadline {
+        private final long startNanos = System.nanoTime();
+        private final long timeoutNanos;
+
+        /**
+         * @param timeoutMs Time limit in milliseconds (0 or less for none)
+         */
+        ExtractionDeadline(long timeoutMs) {
+            this.timeoutNanos = timeoutMs > 0 ? TimeUnit.MILLISECONDS.toNanos(timeoutMs) : Long.MAX_VALUE;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - startNanos > timeoutNanos;
+        }
+
+        long remainingNanos() {
+            return Math.max(0, timeoutNanos - (System.nanoTime() - startNanos));
+        }
+    }
+
+    /**
+     * Thrown inside text extraction when the deadline has passed
+     */
+    private static class ExtractionTimeoutException extends IOException {
+        ExtractionTimeoutException() {
+            super("PDF text extraction timed out");
+        }
+    }
+
+    /**
+     * Why extraction stopped before the end of the document
+     */
+    public enum StopReason {
+        /** The whole document was read */
+        NONE,
+        /** The character limit was reached (the text is complete up to the limit) */
+        CHARACTER_LIMIT,
+        /** The document has more pages than pdf.processing.max-pages */
+        PAGE_LIMIT,
+        /** The processing timeout passed before all pages were read */
+        TIMEOUT
+    }
+
     /**
      * Result class containing PDF processing results and metadata
      */
@@ -216,14 +999,38 @@ public class PdfProcessorService {
         private final int finalCharacterCount;
         private final int originalCharacterCount;
         private final long processingTimeMs;
+        private final int pagesRead;
+        private final int[] pageOffsets;
+        private final StopReason stopReason;
 
         public PdfProcessingResult(String extractedText, int pageCount, int finalCharacterCount, 
                                  int originalCharacterCount, long processingTimeMs) {
+            this(extractedText, pageCount, finalCharacterCount, originalCharacterCount, processingTimeMs, pageCount);
+        }
+
+        public PdfProcessingResult(String extractedText, int pageCount, int finalCharacterCount, 
+                                 int originalCharacterCount, long processingTimeMs, int pagesRead) {
+            this(extractedText, pageCount, finalCharacterCount, originalCharacterCount, processingTimeMs, pagesRead, 
+                new int[0]);
+        }
+
+        public PdfProcessingResult(String extractedText, int pageCount, int finalCharacterCount, 
+                                 int originalCharacterCount, long processingTimeMs, int pagesRead, int[] pageOffsets) {
+            this(extractedText, pageCount, finalCharacterCount, originalCharacterCount, processingTimeMs, pagesRead, 
+                pageOffsets, pagesRead < pageCount ? StopReason.CHARACTER_LIMIT : StopReason.NONE);
+        }
+
+        public PdfProcessingResult(String extractedText, int pageCount, int finalCharacterCount, 
+                                 int originalCharacterCount, long processingTimeMs, int pagesRead, int[] pageOffsets,
+                                 StopReason stopReason) {
             this.extractedText = extractedText;
             this.pageCount = pageCount;
             this.finalCharacterCount = finalCharacterCount;
             this.originalCharacterCount = originalCharacterCount;
             this.processingTimeMs = processingTimeMs;
+            this.pagesRead = pagesRead;
+            this.pageOffsets = pageOffsets;
+            this.stopReason = stopReason;
         }
 
         public String getExtractedText() {
@@ -246,8 +1053,68 @@ public class PdfProcessorService {
             return processingTimeMs;
         }
 
+        /**
+         * Gets the number of pages whose text was extracted
+         * 
+         * Lower than the page count when extraction stopped early (see {@link #getStopReason()}).
+         */
+        public int getPagesRead() {
+            return pagesRead;
+        }
+
+        /**
+         * Gets the offset in the extracted text at which each page read starts
+         * 
+         * Element i is the start of page i + 1; pages without text start where the next
+         * page starts. Empty when page positions are unknown. Must not be modified.
+         */
+        public int[] getPageOffsets() {
+            return pageOffsets;
+        }
+
+        /**
+         * Gets the page a position of the extracted text belongs to
+         * 
+         * @param offset Position in the extracted text
+         * @return The 1-based page number, or 0 if page positions are unknown
+         */
+        public int getPageNumberAt(int offset) {
+            int low = 0;
+            int high = pageOffsets.length;
+            // Number of pages starting at or before the offset
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (pageOffsets[mid] <= offset) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        public StopReason getStopReason() {
+            return stopReason;
+        }
+
+        /**
+         * Whether pages were left unread because of the page budget or the timeout
+         * 
+         * Unlike a text cut at the character limit, a partial result may miss content that
+         * is spread over the whole document.
+         */
+        public boolean isPartial() {
+            return stopReason == StopReason.PAGE_LIMIT || stopReason == StopReason.TIMEOUT;
+        }
+
+        /**
+         * Whether the text was cut at the character limit
+         * 
+         * Decided by the stop reason: the raw character count is always higher than the
+         * cleaned one, since cleaning trims whitespace and line separators.
+         */
         public boolean wasTruncated() {
-            return originalCharacterCount > finalCharacterCount;
+            return stopReason == StopReason.CHARACTER_LIMIT;
         }
     }
 
@@ -263,4 +1130,13 @@ public class PdfProcessorService {
             super(message, cause);
         }
     }
+
+    /**
+     * Exception for extractions rejected because all workers are busy and the queue is full
+     */
+    public static class PdfBusyException extends PdfProcessingException {
+        public PdfBusyException(String message) {
+            super(message);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,145 @@
+package org.example.service.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * ConversationMailbox - Serializes the turns of each conversation
+ *
+ * A conversation's memory must only be modified by one turn at a time, otherwise two
+ * concurrent messages interleave their user, tool and assistant messages. Each
+ * conversation gets a mailbox holding a chain of futures:
+ * - A turn starts when the previous turn of the same conversation has completed
+ *   (successfully or not); turns of different conversations never wait for each other
+ * - No thread is blocked while waiting - the next turn is started by whichever thread
+ *   completes the previous one, after the previous turn's caller has been given its result
+ * - A caller still waiting after the turn timeout gets a TimeoutException. The turn itself
+ *   keeps running and still holds the conversation: the next turn only starts once it has
+ *   really ended, so a timed-out turn never writes to the memory alongside its successor
+ * - At most maxDepth turns (running plus queued) are accepted per conversation; further
+ *   submissions are rejected immediately
+ *
+ * Mailboxes are removed as soon as they are empty, so idle conversations cost nothing.
+ */
+public class ConversationMailbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationMailbox.class);
+
+    private final int maxDepth;
+    private final long turnTimeoutMillis;
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a conversation mailbox
+     *
+     * @param maxDepth Maximum number of running plus queued turns per conversation
+     * @param turnTimeoutMillis Time after which the caller of a running turn is given a TimeoutException
+     */
+    public ConversationMailbox(int maxDepth, long turnTimeoutMillis) {
+        this.maxDepth = Math.max(1, maxDepth);
+        this.turnTimeoutMillis = turnTimeoutMillis;
+    }
+
+    /**
+     * Submits a turn for a conversation
+     *
+     * The task is started once every previously submitted turn of the conversation has
+     * completed. It must not block: it starts the work and returns a future that
+     * completes when the turn is finished.
+     *
+     * @param conversationId The conversation ID
+     * @param task Starts the turn and returns a future completing at the end of the turn
+     * @return Future completing with the outcome of the turn, or with a TimeoutException if
+     *         the turn runs longer than the turn timeout
+     * @throws RejectedExecutionException if the conversation already has maxDepth turns
+     */
+    public <T> CompletableFuture<T> submit(String conversationId, Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<Void> turnDone = new CompletableFuture<>();
+        CompletableFuture<?>[] previous = new CompletableFuture<?>[1];
+
+        mailboxes.compute(conversationId, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+            }
+            if (mailbox.depth >= maxDepth) {
+                return mailbox;
+            }
+            mailbox.depth++;
+            previous[0] = mailbox.tail;
+            mailbox.tail = turnDone;
+            return mailbox;
+        });
+
+        if (previous[0] == null) {
+            throw new RejectedExecutionException("Conversation " + conversationId + " already has " + maxDepth
+                + " turns in progress");
+        }
+
+        if (!previous[0].isDone()) {
+            logger.debug("Queued turn for busy conversation: {}", conversationId);
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        previous[0].whenComplete((ignored, previousError) -> {
+            CompletableFuture<T> turn;
+            try {
+                turn = task.get();
+            } catch (Throwable t) {
+                turn = CompletableFuture.failedFuture(t);
+            }
+
+            CompletableFuture<T> started = turn;
+            turn.whenComplete((value, error) -> {
+                // Hand the result over before this thread goes on to start the next queued turn
+                boolean delivered = error != null ? result.completeExceptionally(error) : result.complete(value);
+                if (!delivered) {
+                    logger.info("Turn of conversation {} finished after its caller timed out", conversationId);
+                }
+                release(conversationId);
+                turnDone.complete(null);
+            });
+
+            // Only the caller's wait is bounded; the conversation stays busy until the turn ends
+            result.orTimeout(turnTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+                if (error instanceof TimeoutException && !started.isDone()) {
+                    logger.warn("Turn of conversation {} did not finish within {}ms - its next turn waits for it", 
+                               conversationId, turnTimeoutMillis);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Gets the number of conversations with a running or queued turn
+     *
+     * @return Number of non-empty mailboxes
+     */
+    public int getActiveConversationCount() {
+        return mailboxes.size();
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    private void release(String conversationId) {
+        mailboxes.computeIfPresent(conversationId, (id, mailbox) -> --mailbox.depth == 0 ? null : mailbox);
+    }
+
+    /**
+     * Turns of one conversation: how many are running or queued and the future of the last one
+     */
+    private static class Mailbox {
+        private int depth;
+        private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+    }
+}
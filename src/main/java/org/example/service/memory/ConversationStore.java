@@ -0,0 +1,392 @@
+package org.example.service.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * ConversationStore - Capacity-bounded store of conversation memories
+ *
+ * Holds one ChatMemory per conversationId and bounds the heap they retain:
+ * - Each conversation is weighted by an estimate of its retained bytes, refreshed after
+ *   every turn as its messages change
+ * - When the total exceeds the byte budget, conversations are evicted with a weighted
+ *   W-TinyLFU policy (see {@link WindowTinyLfuPolicy})
+ * - Idle conversations expire through a {@link TimingWheel} after the session timeout
+ * - Hit, miss, eviction and expiration counts are exposed through {@link #getStats()}
+ *
+ * The chat agent caches each memory after resolving it once, so accesses are not seen
+ * by {@link #getOrCreate}: every turn reports its access through {@link #touch}.
+ *
+ * Lookups of existing conversations are lock-free; policy bookkeeping (a few map
+ * operations per chat turn) is serialized by a single lock.
+ */
+public class ConversationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationStore.class);
+
+    // Rough heap cost of a conversation entry and of a message object besides its text
+    private static final long CONVERSATION_OVERHEAD_BYTES = 512;
+    private static final long MESSAGE_OVERHEAD_BYTES = 96;
+
+    /**
+     * Why a conversation left the store
+     */
+    public enum RemovalCause {
+        EXPIRED,
+        EVICTED,
+        CLEARED
+    }
+
+    /**
+     * Callback for conversations removed from the store
+     */
+    public interface RemovalListener {
+        void onRemoval(String conversationId, ChatMemory memory, RemovalCause cause);
+    }
+
+    /**
+     * Snapshot of store statistics
+     */
+    public record Stats(
+        long hitCount,
+        long missCount,
+        long evictionCount,
+        long expirationCount,
+        int conversationCount,
+        long weightedSizeBytes,
+        long maxWeightBytes
+    ) {
+        public double hitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 1.0 : (double) hitCount / requests;
+        }
+    }
+
+    private final Map<String, ConversationMemory> conversations = new ConcurrentHashMap<>();
+    private final Function<String, ChatMemory> memoryFactory;
+    private final RemovalListener removalListener;
+    private final long sessionTimeoutMillis;
+    private final TimingWheel<ConversationMemory> expiryWheel;
+    private final WindowTinyLfuPolicy<String> policy;
+    private final ReentrantLock policyLock = new ReentrantLock();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+
+    /**
+     * Creates a conversation store
+     *
+     * @param maxWeightBytes Budget of estimated retained bytes across all conversations
+     * @param expectedConversations Expected number of live conversations (sizes the sketch)
+     * @param sessionTimeoutMillis Idle time after which a conversation expires
+     * @param expiryTickMillis Resolution of the expiry wheel
+     * @param memoryFactory Creates the ChatMemory for a new conversationId
+     * @param removalListener Notified when a conversation is expired, evicted or cleared
+     */
+    public ConversationStore(long maxWeightBytes, int expectedConversations, long sessionTimeoutMillis,
+                             long expiryTickMillis, Function<String, ChatMemory> memoryFactory,
+                             RemovalListener removalListener) {
+        this.memoryFactory = memoryFactory;
+        this.removalListener = removalListener;
+        this.sessionTimeoutMillis = sessionTimeoutMillis;
+        this.policy = new WindowTinyLfuPolicy<>(maxWeightBytes, expectedConversations);
+        this.expiryWheel = new TimingWheel<>(expiryTickMillis, sessionTimeoutMillis,
+            conversation -> conversation.expiresAtMillis(sessionTimeoutMillis));
+    }
+
+    /**
+     * Records an access to a conversation at the start of a turn
+     *
+     * Refreshes the conversation's expiry deadline and its frequency in the eviction
+     * policy, and counts a hit. A conversation that is not held is counted as a miss
+     * when its memory is created by {@link #getOrCreate}.
+     *
+     * @param conversationId The conversation ID
+     * @return true if the conversation is held by the store
+     */
+    public boolean touch(String conversationId) {
+        ConversationMemory existing = conversations.get(conversationId);
+        if (existing == null) {
+            return false;
+        }
+
+        existing.markAccessed();
+        hitCount.incrementAndGet();
+        policyLock.lock();
+        try {
+            policy.onAccess(conversationId);
+        } finally {
+            policyLock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Gets the memory of a conversation, creating it on first access
+     *
+     * Only the creation is counted (as a miss); accesses of held conversations are
+     * counted by {@link #touch}.
+     *
+     * @param conversationId The conversation ID
+     * @return The conversation's ChatMemory
+     */
+    public ChatMemory getOrCreate(String conversationId) {
+        ConversationMemory existing = conversations.get(conversationId);
+        if (existing != null) {
+            return existing.getMemory();
+        }
+
+        missCount.incrementAndGet();
+        ConversationMemory[] created = new ConversationMemory[1];
+        ConversationMemory conversation = conversations.computeIfAbsent(conversationId, id -> {
+            logger.debug("Creating new conversation memory for ID: {}", id);
+            created[0] = new ConversationMemory(id, memoryFactory.apply(id));
+            return created[0];
+        });
+
+        if (created[0] != null) {
+            expiryWheel.schedule(created[0]);
+            List<String> evicted;
+            policyLock.lock();
+            try {
+                evicted = policy.onInsert(conversationId, created[0].estimateRetainedBytes());
+            } finally {
+                policyLock.unlock();
+            }
+            removeEvicted(evicted);
+        }
+
+        return conversation.getMemory();
+    }
+
+    /**
+     * Re-estimates the retained bytes of a conversation after its messages changed
+     *
+     * @param conversationId The conversation ID
+     */
+    public void refreshWeight(String conversationId) {
+        ConversationMemory conversation = conversations.get(conversationId);
+        if (conversation == null) {
+            return;
+        }
+
+        long weight = conversation.estimateRetainedBytes();
+        List<String> evicted;
+        policyLock.lock();
+        try {
+            evicted = policy.onWeightChange(conversationId, weight);
+        } finally {
+            policyLock.unlock();
+        }
+        removeEvicted(evicted);
+    }
+
+    /**
+     * Removes conversations whose session timeout has passed
+     *
+     * @param nowMillis Current time in epoch milliseconds
+     * @return Number of conversations removed
+     */
+    public int expire(long nowMillis) {
+        int removed = 0;
+        for (ConversationMemory expired : expiryWheel.advance(nowMillis)) {
+            // Only remove the exact instance that expired (the ID may have been recreated)
+            if (conversations.remove(expired.getConversationId(), expired)) {
+                policyLock.lock();
+                try {
+                    policy.onRemove(expired.getConversationId());
+                } finally {
+                    policyLock.unlock();
+                }
+                expirationCount.incrementAndGet();
+                removed++;
+                logger.debug("Cleaning up expired memory for conversation: {}", expired.getConversationId());
+                removalListener.onRemoval(expired.getConversationId(), expired.memory, RemovalCause.EXPIRED);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every conversation
+     *
+     * @return Number of conversations removed
+     */
+    public int clear() {
+        int count = 0;
+        policyLock.lock();
+        try {
+            for (String conversationId : conversations.keySet()) {
+                ConversationMemory removed = conversations.remove(conversationId);
+                if (removed != null) {
+                    count++;
+                    removalListener.onRemoval(conversationId, removed.memory, RemovalCause.CLEARED);
+                }
+            }
+            policy.clear();
+        } finally {
+            policyLock.unlock();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the memory of a conversation if it is held, without counting an access
+     *
+     * @param conversationId The conversation ID
+     * @return The conversation's ChatMemory, or null if it is not in the store
+     */
+    public ChatMemory getIfPresent(String conversationId) {
+        ConversationMemory conversation = conversations.get(conversationId);
+        return conversation != null ? conversation.memory : null;
+    }
+
+    /**
+     * Checks whether a conversation is currently held by the store
+     *
+     * @param conversationId The conversation ID
+     * @return true if the conversation's memory is in the store
+     */
+    public boolean contains(String conversationId) {
+        return conversations.containsKey(conversationId);
+    }
+
+    public int size() {
+        return conversations.size();
+    }
+
+    /**
+     * Gets a snapshot of the store statistics
+     *
+     * @return Current hit/miss/eviction/expiration counts and weighted size
+     */
+    public Stats getStats() {
+        long weightedSize;
+        policyLock.lock();
+        try {
+            weightedSize = policy.weightedSize();
+        } finally {
+            policyLock.unlock();
+        }
+        return new Stats(hitCount.get(), missCount.get(), evictionCount.get(), expirationCount.get(),
+            conversations.size(), weightedSize, policy.maxWeight());
+    }
+
+    public long getSessionTimeoutMillis() {
+        return sessionTimeoutMillis;
+    }
+
+    public int getExpiryBucketCount() {
+        return expiryWheel.getBucketCount();
+    }
+
+    private void removeEvicted(List<String> evicted) {
+        for (String conversationId : evicted) {
+            ConversationMemory removed = conversations.remove(conversationId);
+            if (removed != null) {
+                evictionCount.incrementAndGet();
+                logger.info("Evicted conversation {} (~{} bytes) to stay within memory budget",
+                           conversationId, removed.estimateRetainedBytes());
+                removalListener.onRemoval(conversationId, removed.memory, RemovalCause.EVICTED);
+            }
+        }
+    }
+
+    /**
+     * Wrapper class to track memory with timestamps for cleanup
+     *
+     * The access time is a volatile epoch-millis field: request threads update it without
+     * locking and the expiry wheel always reads the latest value.
+     */
+    private static class ConversationMemory {
+        private final String conversationId;
+        private final ChatMemory memory;
+        private final Instant createdAt;
+        private volatile long lastAccessedAtMillis;
+
+        ConversationMemory(String conversationId, ChatMemory memory) {
+            this.conversationId = conversationId;
+            this.memory = memory;
+            this.createdAt = Instant.now();
+            this.lastAccessedAtMillis = createdAt.toEpochMilli();
+        }
+
+        ChatMemory getMemory() {
+            return memory;
+        }
+
+        void markAccessed() {
+            this.lastAccessedAtMillis = System.currentTimeMillis();
+        }
+
+        String getConversationId() {
+            return conversationId;
+        }
+
+        long expiresAtMillis(long timeoutMillis) {
+            return lastAccessedAtMillis + timeoutMillis;
+        }
+
+        /**
+         * Estimates the heap retained by this conversation's messages
+         *
+         * Text is counted at two bytes per character (UTF-16 upper bound) plus a fixed
+         * overhead per message; images count their base64 payload. The system message is
+         * not counted since its text is shared by all conversations.
+         */
+        long estimateRetainedBytes() {
+            long bytes = CONVERSATION_OVERHEAD_BYTES;
+            for (ChatMessage message : memory.messages()) {
+                bytes += MESSAGE_OVERHEAD_BYTES + 2L * textLength(message);
+            }
+            return bytes;
+        }
+
+        private static long textLength(ChatMessage message) {
+            if (message instanceof UserMessage userMessage) {
+                long length = 0;
+                for (Content content : userMessage.contents()) {
+                    if (content instanceof TextContent textContent) {
+                        length += textContent.text().length();
+                    } else if (content instanceof ImageContent imageContent
+                               && imageContent.image().base64Data() != null) {
+                        length += imageContent.image().base64Data().length();
+                    }
+                }
+                return length;
+            }
+            if (message instanceof AiMessage aiMessage) {
+                long length = aiMessage.text() != null ? aiMessage.text().length() : 0;
+                if (aiMessage.hasToolExecutionRequests()) {
+                    length += aiMessage.toolExecutionRequests().stream()
+                        .mapToLong(request -> request.arguments() != null ? request.arguments().length() : 0)
+                        .sum();
+                }
+                return length;
+            }
+            if (message instanceof ToolExecutionResultMessage resultMessage) {
+                return resultMessage.text() != null ? resultMessage.text().length() : 0;
+            }
+            // System messages share the configured prompt string across conversations
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.example.service.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import org.example.service.pdf.StructuredFieldExtractor;
+import org.example.service.pdf.StructuredFieldExtractor.ExtractedFields;
+import org.example.service.pdf.StructuredFieldExtractor.Field;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * ConversationSummarizer - Folds the oldest turns of long conversations into a running summary
+ *
+ * Once a conversation's memory grows past the trigger size, everything except the most
+ * recent turns is summarized by the chat model in the background and replaced by a
+ * summary turn (a user message carrying the summary and a short assistant acknowledgment,
+ * which keeps the user/assistant alternation the API expects). The previous summary is
+ * part of the folded prefix, so the summary rolls forward instead of growing.
+ *
+ * The request path only checks the size and hands the work off. If the conversation
+ * changes the folded prefix in the meantime (e.g. budget eviction), the summary is
+ * discarded. The summarization prompt asks for identifiers such as policy numbers, VINs
+ * and email addresses to be kept verbatim.
+ *
+ * Long messages (e.g. extracted document text in tool results) are cut to an excerpt
+ * before they are summarized. The VINs, policy numbers and email addresses of the whole
+ * message are listed after the excerpt, so identifiers further into a document still
+ * reach the summary.
+ */
+public class ConversationSummarizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationSummarizer.class);
+
+    static final String SUMMARY_HEADER = "[Summary of the earlier conversation]";
+    private static final String SUMMARY_ACKNOWLEDGMENT = "Understood, I will continue from this summary.";
+
+    // Longest excerpt of a single message that is sent to the summarizer
+    private static final int MAX_MESSAGE_CHARS = 4000;
+
+    // Identifiers of each type listed for a cut message
+    private static final int MAX_IDENTIFIERS_PER_TYPE = 20;
+
+    private static final String INSTRUCTIONS = """
+        You maintain the running summary of a customer conversation with an insurance assistant.
+        Summarize the transcript below in at most 250 words. If it starts with an earlier summary,
+        merge it into the new one.
+        Always keep verbatim: names, email addresses, policy numbers, VINs, vehicle details, dates,
+        amounts, file names, and which emails or documents were already sent or analyzed.
+        Also keep decisions made and questions still open. Leave out greetings and small talk.
+        Answer with the summary only.""";
+
+    private final ChatModel chatModel;
+    private final StructuredFieldExtractor fieldExtractor;
+    private final Executor executor;
+    private final int triggerTokens;
+    private final int keepTurns;
+    private final Set<Object> inProgress = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a conversation summarizer
+     *
+     * @param chatModel Model writing the summaries
+     * @param fieldExtractor Finds the identifiers of messages too long to send in full
+     * @param executor Executor running the summarization calls
+     * @param triggerTokens Estimated memory size above which a conversation is summarized
+     * @param keepTurns Number of most recent turns always kept verbatim
+     */
+    public ConversationSummarizer(ChatModel chatModel, StructuredFieldExtractor fieldExtractor, Executor executor,
+                                  int triggerTokens, int keepTurns) {
+        this.chatModel = chatModel;
+        this.fieldExtractor = fieldExtractor;
+        this.executor = executor;
+        this.triggerTokens = triggerTokens;
+        this.keepTurns = Math.max(1, keepTurns);
+    }
+
+    /**
+     * Schedules a background summary of the memory's older turns if it grew past the trigger size
+     *
+     * Returns immediately; at most one summary per conversation is computed at a time.
+     *
+     * @param memory The conversation memory
+     */
+    public void compactIfNeeded(TokenBudgetChatMemory memory) {
+        if (memory.getTokenCount() <= triggerTokens || !inProgress.add(memory.id())) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    compact(memory);
+                } finally {
+                    inProgress.remove(memory.id());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inProgress.remove(memory.id());
+            logger.debug("Summarizer busy - skipping compaction of memory {}", memory.id());
+        }
+    }
+
+    private void compact(TokenBudgetChatMemory memory) {
+        List<ChatMessage> prefix = memory.getMessagesBeforeLastTurns(keepTurns);
+        if (prefix.isEmpty() || (prefix.size() == 2 && isSummary(prefix.get(0)))) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            String summary = chatModel.chat(
+                SystemMessage.from(INSTRUCTIONS),
+                UserMessage.from(renderTranscript(prefix))
+            ).aiMessage().text();
+
+            if (summary == null || summary.isBlank()) {
+                logger.warn("Empty summary returned for memory {} - keeping messages", memory.id());
+                return;
+            }
+
+            int tokensBefore = memory.getTokenCount();
+            boolean replaced = memory.replacePrefix(prefix, List.of(
+                UserMessage.from(SUMMARY_HEADER + "\n" + summary.trim()),
+                AiMessage.from(SUMMARY_ACKNOWLEDGMENT)
+            ));
+
+            if (replaced) {
+                logger.info("Summarized {} messages of memory {} - ~{} -> ~{} tokens in {}ms",
+                           prefix.size(), memory.id(), tokensBefore, memory.getTokenCount(),
+                           System.currentTimeMillis() - startTime);
+            } else {
+                logger.debug("Memory {} changed while it was summarized - summary discarded", memory.id());
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to summarize memory {}: {}", memory.id(), e.getMessage());
+        }
+    }
+
+    private static boolean isSummary(ChatMessage message) {
+        return message instanceof UserMessage userMessage
+            && userMessage.hasSingleText()
+            && userMessage.singleText().startsWith(SUMMARY_HEADER);
+    }
+
+    /**
+     * Renders messages as a plain-text transcript for the summarizer
+     */
+    private String renderTranscript(List<ChatMessage> messages) {
+        StringBuilder transcript = new StringBuilder();
+        for (ChatMessage message : messages) {
+            if (message instanceof UserMessage userMessage) {
+                transcript.append("User: ");
+                for (Content content : userMessage.contents()) {
+                    if (content instanceof TextContent textContent) {
+                        transcript.append(excerpt(textContent.text()));
+                    } else if (content instanceof ImageContent) {
+                        transcript.append("[image]");
+                    }
+                }
+            } else if (message instanceof AiMessage aiMessage) {
+                transcript.append("Assistant: ");
+                if (aiMessage.text() != null) {
+                    transcript.append(excerpt(aiMessage.text()));
+                }
+                if (aiMessage.hasToolExecutionRequests()) {
+                    for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                        transcript.append("\n[called tool ").append(request.name())
+                            .append(" with ").append(excerpt(request.arguments())).append("]");
+                    }
+                }
+            } else if (message instanceof ToolExecutionResultMessage resultMessage) {
+                transcript.append("Tool ").append(resultMessage.toolName()).append(" result: ")
+                    .append(excerpt(resultMessage.text()));
+            } else {
+                continue;
+            }
+            transcript.append("\n\n");
+        }
+        return transcript.toString();
+    }
+
+    /**
+     * Cuts a long text to its beginning, followed by the identifiers found in all of it
+     */
+    private String excerpt(String text) {
+        if (text == null) {
+            return "";
+        }
+        if (text.length() <= MAX_MESSAGE_CHARS) {
+            return text;
+        }
+
+        StringBuilder excerpt = new StringBuilder(text.substring(0, MAX_MESSAGE_CHARS)).append(" [...]");
+        ExtractedFields fields = fieldExtractor.extract(text);
+        if (!fields.isEmpty()) {
+            List<Field> vins = new ArrayList<>(fields.vins());
+            vins.addAll(fields.unverifiedVins());
+
+            StringJoiner identifiers = new StringJoiner("; ", "\n[Identifiers in the full text: ", "]");
+            appendIdentifiers(identifiers, "VINs", vins);
+            appendIdentifiers(identifiers, "policy numbers", fields.policyNumbers());
+            appendIdentifiers(identifiers, "email addresses", fields.emailAddresses());
+            excerpt.append(identifiers);
+        }
+        return excerpt.toString();
+    }
+
+    private static void appendIdentifiers(StringJoiner identifiers, String label, List<Field> fields) {
+        if (fields.isEmpty()) {
+            return;
+        }
+        StringJoiner values = new StringJoiner(", ", label + ": ", "");
+        fields.stream().limit(MAX_IDENTIFIERS_PER_TYPE).forEach(field -> values.add(field.value()));
+        if (fields.size() > MAX_IDENTIFIERS_PER_TYPE) {
+            values.add("and " + (fields.size() - MAX_IDENTIFIERS_PER_TYPE) + " more");
+        }
+        identifiers.add(values.toString());
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.service.memory;
+
+/**
+ * FrequencySketch - Count-Min sketch of recent access frequency (TinyLFU)
+ *
+ * Estimates how often a key was accessed recently using four rows of 4-bit counters
+ * (stored one per byte for simplicity). Once the number of recorded accesses reaches
+ * ten times the sketch width, all counters are halved so that old popularity fades.
+ *
+ * Not thread-safe; callers synchronize access.
+ */
+class FrequencySketch {
+
+    private static final int ROWS = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final byte[] counters;
+    private final int widthMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Creates a sketch sized for the expected number of distinct keys
+     *
+     * @param expectedKeys Expected number of keys tracked at a time
+     */
+    FrequencySketch(int expectedKeys) {
+        int width = Integer.highestOneBit(Math.max(64, expectedKeys) * 2 - 1);
+        this.counters = new byte[ROWS * width];
+        this.widthMask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    /**
+     * Records one access of the key
+     *
+     * @param key The accessed key
+     */
+    void increment(Object key) {
+        int hash = key.hashCode();
+        boolean added = false;
+
+        for (int row = 0; row < ROWS; row++) {
+            int index = indexOf(hash, row);
+            if (counters[index] < MAX_COUNT) {
+                counters[index]++;
+                added = true;
+            }
+        }
+
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Estimates the recent access frequency of the key
+     *
+     * @param key The key to look up
+     * @return Estimated frequency between 0 and 15
+     */
+    int frequency(Object key) {
+        int hash = key.hashCode();
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < ROWS; row++) {
+            frequency = Math.min(frequency, counters[indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * Halves every counter (aging)
+     */
+    private void reset() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = (byte) (counters[i] >>> 1);
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        long mixed = (hash + SEEDS[row]) * SEEDS[row];
+        int column = (int) (mixed >>> 32) & widthMask;
+        return row * (widthMask + 1) + column;
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.service.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+import org.springframework.stereotype.Component;
+
+/**
+ * LocalTokenCountEstimator - Dependency-free token count estimator for Claude prompts
+ *
+ * Approximates Claude's tokenizer with a single pass over the text, without loading a
+ * vocabulary or calling the token counting API. The estimate is intentionally slightly
+ * pessimistic so that budgets derived from it are not exceeded in practice.
+ *
+ * Heuristics:
+ * - Runs of letters: one token per 4 characters (rounded up)
+ * - Runs of digits: one token per 3 characters (rounded up)
+ * - Ideographic characters (CJK): one token each
+ * - Punctuation and symbols: one token each
+ * - Whitespace: free (merged into neighbouring tokens)
+ * - Per-message framing overhead and a flat cost for images
+ */
+@Component
+public class LocalTokenCountEstimator implements TokenCountEstimator {
+
+    // Role/framing overhead added by the Messages API for every message
+    private static final int TOKENS_PER_MESSAGE = 4;
+
+    // Anthropic charges roughly (width * height) / 750 tokens per image, capped around 1600
+    private static final int TOKENS_PER_IMAGE = 1600;
+
+    // Tool use blocks carry an id, name and JSON framing besides the arguments
+    private static final int TOKENS_PER_TOOL_REQUEST = 10;
+
+    @Override
+    public int estimateTokenCountInText(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+
+        int tokens = 0;
+        int letterRun = 0;
+        int digitRun = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (Character.isLetter(c) && !Character.isIdeographic(c)) {
+                if (digitRun > 0) {
+                    tokens += (digitRun + 2) / 3;
+                    digitRun = 0;
+                }
+                letterRun++;
+                continue;
+            }
+            if (Character.isDigit(c)) {
+                if (letterRun > 0) {
+                    tokens += (letterRun + 3) / 4;
+                    letterRun = 0;
+                }
+                digitRun++;
+                continue;
+            }
+
+            // Any other character ends the current runs
+            tokens += (letterRun + 3) / 4 + (digitRun + 2) / 3;
+            letterRun = 0;
+            digitRun = 0;
+
+            if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+        }
+
+        return tokens + (letterRun + 3) / 4 + (digitRun + 2) / 3;
+    }
+
+    @Override
+    public int estimateTokenCountInMessage(ChatMessage message) {
+        int tokens = TOKENS_PER_MESSAGE;
+
+        if (message instanceof UserMessage userMessage) {
+            for (Content content : userMessage.contents()) {
+                if (content instanceof TextContent textContent) {
+                    tokens += estimateTokenCountInText(textContent.text());
+                } else if (content instanceof ImageContent) {
+                    tokens += TOKENS_PER_IMAGE;
+                }
+            }
+        } else if (message instanceof AiMessage aiMessage) {
+            tokens += estimateTokenCountInText(aiMessage.text());
+            if (aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    tokens += TOKENS_PER_TOOL_REQUEST
+                        + estimateTokenCountInText(request.name())
+                        + estimateTokenCountInText(request.arguments());
+                }
+            }
+        } else if (message instanceof ToolExecutionResultMessage resultMessage) {
+            tokens += TOKENS_PER_TOOL_REQUEST + estimateTokenCountInText(resultMessage.text());
+        } else if (message instanceof SystemMessage systemMessage) {
+            tokens += estimateTokenCountInText(systemMessage.text());
+        }
+
+        return tokens;
+    }
+
+    @Override
+    public int estimateTokenCountInMessages(Iterable<ChatMessage> messages) {
+        int tokens = 0;
+        for (ChatMessage message : messages) {
+            tokens += estimateTokenCountInMessage(message);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,476 @@
+package org.example.service.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * MappedLogChatMemoryStore - ChatMemoryStore persisted in a memory-mapped append-only log
+ *
+ * Every update appends a full snapshot of the conversation's messages (JSON) to the
+ * active segment file; deletions append a tombstone. Segments are memory-mapped, so an
+ * append is a memory copy into the page cache - no system call and no fsync on the
+ * write path. The OS writes pages back in the background and {@link #flush()} forces
+ * them periodically, so a process crash loses nothing and a machine crash at most the
+ * last flush interval.
+ *
+ * Record layout: length (int, bytes after this field), CRC32 (int, of the bytes after
+ * this field), type (byte), written-at epoch millis (long), ID length (short), ID (UTF-8),
+ * payload (UTF-8 JSON, empty for tombstones). A zero length or bad CRC marks the end of
+ * a segment's valid data, so a record torn by a crash is ignored on restart.
+ *
+ * On startup only the record headers are scanned to rebuild the index of the latest
+ * record per conversation; messages are decoded when a conversation is first read.
+ *
+ * {@link #compact()} rewrites the live records of mostly-dead sealed segments to the end
+ * of the log and deletes those segments. System messages are not persisted since the
+ * chat agent sets them on every turn.
+ *
+ * Conversations contain customer data (names, email addresses, VINs, policy numbers):
+ * on POSIX file systems the directory is restricted to the owner (rwx------) and
+ * segment files are created rw-------.
+ *
+ * Thread-safe; appends and index updates are serialized by the store's monitor.
+ */
+public class MappedLogChatMemoryStore implements ChatMemoryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedLogChatMemoryStore.class);
+
+    private static final byte TYPE_SNAPSHOT = 1;
+    private static final byte TYPE_TOMBSTONE = 2;
+
+    // length + crc + type + timestamp + id length
+    private static final int HEADER_BYTES = 4 + 4 + 1 + 8 + 2;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+
+    // Sealed segments with less than this share of live bytes are compacted
+    private static final double COMPACTION_LIVE_RATIO = 0.5;
+
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private final Path directory;
+    private final int segmentBytes;
+
+    // Segments ordered from oldest to newest; the last one is the active segment
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, RecordLocation> index = new HashMap<>();
+
+    /**
+     * Opens (or creates) a conversation log
+     *
+     * @param directory Directory holding the segment files
+     * @param segmentBytes Size of each mapped segment file
+     * @throws UncheckedIOException if the directory or segments cannot be opened
+     */
+    public MappedLogChatMemoryStore(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+
+        try {
+            createPrivateDirectory(directory);
+            openSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open conversation log in " + directory, e);
+        }
+
+        logger.info("Conversation log opened in {} - {} segments, {} conversations",
+                   directory, segments.size(), index.size());
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        byte[] payload;
+        synchronized (this) {
+            RecordLocation location = index.get(memoryId.toString());
+            if (location == null) {
+                return new ArrayList<>();
+            }
+            payload = location.segment.readPayload(location);
+        }
+        return ChatMessageDeserializer.messagesFromJson(new String(payload, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        List<ChatMessage> persisted = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            if (!(message instanceof SystemMessage)) {
+                persisted.add(message);
+            }
+        }
+
+        // Serialize outside the lock; only the copy into the mapped segment is serialized
+        String id = memoryId.toString();
+        byte[] payload = ChatMessageSerializer.messagesToJson(persisted).getBytes(StandardCharsets.UTF_8);
+        long writtenAtMillis = System.currentTimeMillis();
+        byte[] record = encodeRecord(TYPE_SNAPSHOT, writtenAtMillis, id, payload);
+
+        synchronized (this) {
+            setLocation(id, append(record, writtenAtMillis, record.length - payload.length));
+        }
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        String id = memoryId.toString();
+        synchronized (this) {
+            if (!index.containsKey(id)) {
+                return;
+            }
+            long writtenAtMillis = System.currentTimeMillis();
+            byte[] record = encodeRecord(TYPE_TOMBSTONE, writtenAtMillis, id, new byte[0]);
+            append(record, writtenAtMillis, record.length);
+            setLocation(id, null);
+        }
+    }
+
+    /**
+     * Deletes conversations whose last update is older than the cutoff
+     *
+     * @param cutoffMillis Conversations last written before this time are deleted
+     * @param retain Conversations to keep regardless of age (e.g. those still in memory)
+     * @return Number of conversations deleted
+     */
+    public synchronized int expireOlderThan(long cutoffMillis, Predicate<String> retain) {
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, RecordLocation> entry : index.entrySet()) {
+            if (entry.getValue().writtenAtMillis < cutoffMillis && !retain.test(entry.getKey())) {
+                expired.add(entry.getKey());
+            }
+        }
+        for (String id : expired) {
+            deleteMessages(id);
+        }
+        return expired.size();
+    }
+
+    /**
+     * Compacts sealed segments that are mostly dead
+     *
+     * Live snapshots of a compacted segment are appended again to the end of the log;
+     * tombstones are kept only while an older segment may still hold a snapshot they hide.
+     *
+     * @return Number of segments deleted
+     */
+    public synchronized int compact() {
+        int compacted = 0;
+
+        // Appends below may add segments, so pick the candidates among the sealed ones first
+        List<Segment> candidates = new ArrayList<>();
+        for (Segment segment : segments.subList(0, segments.size() - 1)) {
+            if (segment.writePosition == 0 || segment.liveBytes < segment.writePosition * COMPACTION_LIVE_RATIO) {
+                candidates.add(segment);
+            }
+        }
+
+        for (Segment segment : candidates) {
+            boolean oldest = segment == segments.get(0);
+            int moved = 0;
+            for (int offset = 0; offset < segment.writePosition; ) {
+                RecordHeader header = segment.readHeader(offset);
+                RecordLocation current = index.get(header.id);
+
+                boolean live = header.type == TYPE_SNAPSHOT && current != null
+                    && current.segment == segment && current.offset == offset;
+                boolean hidesOlderSnapshot = header.type == TYPE_TOMBSTONE && current == null && !oldest;
+
+                if (live || hidesOlderSnapshot) {
+                    RecordLocation relocated = append(segment.readRecord(offset, header.recordBytes),
+                        header.writtenAtMillis, header.payloadOffset);
+                    if (live) {
+                        setLocation(header.id, relocated);
+                    }
+                    moved++;
+                }
+                offset += header.recordBytes;
+            }
+
+            segments.remove(segment);
+            segment.delete();
+            compacted++;
+            logger.debug("Compacted conversation log segment {} - {} records moved", segment.path, moved);
+        }
+
+        if (compacted > 0) {
+            logger.info("Compacted {} conversation log segments - {} segments, {} conversations remain",
+                       compacted, segments.size(), index.size());
+        }
+        return compacted;
+    }
+
+    /**
+     * Forces written records of the active segment to disk
+     */
+    public synchronized void flush() {
+        activeSegment().buffer.force();
+    }
+
+    /**
+     * Flushes and closes all segments
+     */
+    public synchronized void close() {
+        flush();
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    public synchronized int getConversationCount() {
+        return index.size();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Creates the log directory, or restricts an existing one, to the owner
+     */
+    private static void createPrivateDirectory(Path directory) throws IOException {
+        if (!POSIX) {
+            Files.createDirectories(directory);
+            return;
+        }
+        Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+        Files.setPosixFilePermissions(directory, OWNER_ONLY_DIRECTORY);
+    }
+
+    private void openSegments() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream
+                .filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                .sorted()
+                .toList();
+        }
+
+        for (Path file : files) {
+            Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+            matcher.matches();
+            Segment segment = Segment.open(file, Long.parseLong(matcher.group(1)), 0);
+            segments.add(segment);
+            scan(segment);
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(createSegment(1, segmentBytes));
+        }
+    }
+
+    /**
+     * Rebuilds the index from a segment's record headers and finds its end of valid data
+     */
+    private void scan(Segment segment) {
+        int offset = 0;
+        RecordHeader header;
+        while ((header = segment.readValidHeader(offset)) != null) {
+            if (header.type == TYPE_SNAPSHOT) {
+                setLocation(header.id, new RecordLocation(segment, offset, header.recordBytes,
+                    header.payloadOffset, header.writtenAtMillis));
+            } else {
+                setLocation(header.id, null);
+            }
+            offset += header.recordBytes;
+        }
+        segment.writePosition = offset;
+    }
+
+    private RecordLocation append(byte[] record, long writtenAtMillis, int payloadOffset) {
+        Segment active = activeSegment();
+        if (active.buffer.capacity() - active.writePosition < record.length) {
+            active.buffer.force();
+            active = createSegment(active.number + 1, Math.max(segmentBytes, record.length));
+            segments.add(active);
+        }
+
+        int offset = active.writePosition;
+        active.buffer.put(offset, record);
+        active.writePosition += record.length;
+        return new RecordLocation(active, offset, record.length, payloadOffset, writtenAtMillis);
+    }
+
+    private void setLocation(String id, RecordLocation location) {
+        RecordLocation previous = location != null ? index.put(id, location) : index.remove(id);
+        if (previous != null) {
+            previous.segment.liveBytes -= previous.recordBytes;
+        }
+        if (location != null) {
+            location.segment.liveBytes += location.recordBytes;
+        }
+    }
+
+    private Segment activeSegment() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private Segment createSegment(long number, int size) {
+        Path path = directory.resolve(String.format("segment-%010d.log", number));
+        try {
+            return Segment.open(path, number, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create conversation log segment " + path, e);
+        }
+    }
+
+    private static byte[] encodeRecord(byte type, long writtenAtMillis, String id, byte[] payload) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        if (idBytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Conversation ID is too long to persist: " + idBytes.length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + idBytes.length + payload.length);
+        buffer.putInt(buffer.capacity() - 4);
+        buffer.putInt(0);
+        buffer.put(type);
+        buffer.putLong(writtenAtMillis);
+        buffer.putShort((short) idBytes.length);
+        buffer.put(idBytes);
+        buffer.put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 8, buffer.capacity() - 8);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Location of a conversation's latest snapshot
+     */
+    private record RecordLocation(Segment segment, int offset, int recordBytes, int payloadOffset,
+                                  long writtenAtMillis) {
+    }
+
+    /**
+     * Decoded record header
+     */
+    private record RecordHeader(byte type, long writtenAtMillis, String id, int recordBytes, int payloadOffset) {
+    }
+
+    /**
+     * One memory-mapped segment file
+     */
+    private static class Segment {
+        private final Path path;
+        private final long number;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private long liveBytes;
+
+        private Segment(Path path, long number, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.number = number;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Maps a segment file, growing it to minSize if it is smaller
+         */
+        static Segment open(Path path, long number, int minSize) throws IOException {
+            Set<OpenOption> options = Set.of(StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileAttribute<?>[] attributes = POSIX
+                ? new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE)}
+                : new FileAttribute<?>[0];
+            FileChannel channel = FileChannel.open(path, options, attributes);
+            long size = Math.max(channel.size(), minSize);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(path, number, channel, buffer);
+        }
+
+        /**
+         * Reads the header at the offset, or null if no valid record starts there
+         */
+        RecordHeader readValidHeader(int offset) {
+            if (offset + HEADER_BYTES > buffer.capacity()) {
+                return null;
+            }
+            int length = buffer.getInt(offset);
+            if (length < HEADER_BYTES - 4 || offset + 4 + length > buffer.capacity()) {
+                return null;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(offset + 8, length - 4));
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                return null;
+            }
+            return readHeader(offset);
+        }
+
+        RecordHeader readHeader(int offset) {
+            int recordBytes = buffer.getInt(offset) + 4;
+            byte type = buffer.get(offset + 8);
+            long writtenAtMillis = buffer.getLong(offset + 9);
+            int idLength = Short.toUnsignedInt(buffer.getShort(offset + 17));
+
+            byte[] idBytes = new byte[idLength];
+            buffer.get(offset + HEADER_BYTES, idBytes);
+            return new RecordHeader(type, writtenAtMillis, new String(idBytes, StandardCharsets.UTF_8),
+                recordBytes, HEADER_BYTES + idLength);
+        }
+
+        byte[] readRecord(int offset, int recordBytes) {
+            byte[] record = new byte[recordBytes];
+            buffer.get(offset, record);
+            return record;
+        }
+
+        byte[] readPayload(RecordLocation location) {
+            byte[] payload = new byte[location.recordBytes - location.payloadOffset];
+            buffer.get(location.offset + location.payloadOffset, payload);
+            return payload;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close conversation log segment {}: {}", path, e.getMessage());
+            }
+        }
+
+        /**
+         * Closes and deletes the segment file (the mapping is released once unreachable)
+         */
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete conversation log segment {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.service.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.ToLongFunction;
+
+/**
+ * TimingWheel - Hashed timing wheel for expiring items by deadline
+ *
+ * Items are placed in the bucket of the tick their deadline falls into. Advancing the
+ * wheel only visits the buckets of the ticks that elapsed, so the cost of expiry is
+ * proportional to the items that are due rather than to all items held.
+ *
+ * Deadlines may move later without touching the wheel (e.g. a conversation that is
+ * accessed again): when an item's bucket comes due, its current deadline is re-read
+ * and the item is rescheduled if it is not due yet. An item is therefore revisited at
+ * most once per timeout period, however often it is accessed in between.
+ *
+ * Threading: {@link #schedule} may be called from any thread; {@link #advance} must be
+ * called from a single thread (the cleanup scheduler).
+ *
+ * @param <T> Type of the scheduled items
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final List<Queue<Slot<T>>> buckets;
+    private final int mask;
+    private final ToLongFunction<T> deadlineFunction;
+
+    // Last tick whose bucket has been processed
+    private volatile long currentTick;
+
+    /**
+     * Creates a timing wheel
+     *
+     * @param tickMillis Resolution of the wheel in milliseconds
+     * @param horizonMillis Longest expected distance to a deadline; sizes the wheel so that
+     *                      items do not need extra rotations before they fall due
+     * @param deadlineFunction Reads the current deadline (epoch millis) of an item
+     */
+    public TimingWheel(long tickMillis, long horizonMillis, ToLongFunction<T> deadlineFunction) {
+        this.tickMillis = tickMillis;
+        this.deadlineFunction = deadlineFunction;
+
+        int size = Integer.highestOneBit((int) Math.max(2, Math.min(1 << 20, horizonMillis / tickMillis + 1)) * 2 - 1);
+        List<Queue<Slot<T>>> buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ConcurrentLinkedQueue<>());
+        }
+        this.buckets = List.copyOf(buckets);
+        this.mask = size - 1;
+        this.currentTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    /**
+     * Schedules an item at its current deadline
+     *
+     * @param item The item to schedule
+     */
+    public void schedule(T item) {
+        long deadlineTick = Math.max(ticksOf(deadlineFunction.applyAsLong(item)), currentTick + 1);
+        buckets.get((int) (deadlineTick & mask)).add(new Slot<>(item, deadlineTick));
+    }
+
+    /**
+     * Advances the wheel to the given time and collects the items that are due
+     *
+     * Items whose deadline moved later are rescheduled instead of being returned.
+     *
+     * @param nowMillis Current time in epoch milliseconds
+     * @return Items whose deadline has passed, in no particular order
+     */
+    public List<T> advance(long nowMillis) {
+        List<T> due = new ArrayList<>();
+        long targetTick = ticksOf(nowMillis);
+        List<Slot<T>> notYetDue = new ArrayList<>();
+
+        for (long tick = currentTick + 1; tick <= targetTick; tick++) {
+            Queue<Slot<T>> bucket = buckets.get((int) (tick & mask));
+            Slot<T> slot;
+            while ((slot = bucket.poll()) != null) {
+                if (slot.deadlineTick > tick) {
+                    // Scheduled for a later rotation of the wheel
+                    notYetDue.add(slot);
+                } else if (deadlineFunction.applyAsLong(slot.item) <= nowMillis) {
+                    due.add(slot.item);
+                } else {
+                    notYetDue.add(new Slot<>(slot.item, ticksOf(deadlineFunction.applyAsLong(slot.item))));
+                }
+            }
+            currentTick = tick;
+
+            for (Slot<T> pending : notYetDue) {
+                long deadlineTick = Math.max(pending.deadlineTick, tick + 1);
+                buckets.get((int) (deadlineTick & mask)).add(new Slot<>(pending.item, deadlineTick));
+            }
+            notYetDue.clear();
+        }
+
+        return due;
+    }
+
+    /**
+     * Gets the number of buckets in the wheel
+     *
+     * @return Bucket count (a power of two)
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    private long ticksOf(long millis) {
+        return millis / tickMillis;
+    }
+
+    /**
+     * Item scheduled in a bucket together with the tick it was scheduled for
+     */
+    private record Slot<T>(T item, long deadlineTick) {
+    }
+}
@@ -0,0 +1,292 @@
+package org.example.service.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TokenBudgetChatMemory - Chat memory bounded by an estimated token budget
+ *
+ * Unlike a fixed message window, a single large tool result (e.g. 50K characters of
+ * extracted PDF text) consumes most of the budget and is evicted after a few turns
+ * instead of being resent on every turn.
+ *
+ * Eviction rules:
+ * - Oldest content goes first, one whole turn at a time (a user message and every
+ *   assistant/tool message that followed it), so tool requests are never separated
+ *   from their results and the history always starts with a user message
+ * - The system message is kept and does not count against eviction
+ * - The latest turn is never evicted, even if it alone exceeds the budget
+ *
+ * Token counts are estimated once per message when it is added.
+ *
+ * With a ChatMemoryStore, the messages are loaded from the store on first access and
+ * every change is written back to it. Messages are kept on the heap as well, so reads
+ * never go to the store.
+ */
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenBudgetChatMemory.class);
+
+    private final Object id;
+    private final int maxTokens;
+    private final TokenCountEstimator estimator;
+    private final ChatMemoryStore store;
+    private boolean loaded;
+
+    private SystemMessage systemMessage;
+    private final List<ChatMessage> messages = new ArrayList<>();
+    private final List<Integer> messageTokens = new ArrayList<>();
+    private int systemTokens;
+    private int totalTokens;
+
+    public TokenBudgetChatMemory(Object id, int maxTokens, TokenCountEstimator estimator) {
+        this(id, maxTokens, estimator, null);
+    }
+
+    /**
+     * Creates a chat memory persisted in a store
+     * 
+     * @param id The memory ID
+     * @param maxTokens Token budget
+     * @param estimator Estimates the tokens of each message
+     * @param store Store to load the messages from and write changes to (may be null)
+     */
+    public TokenBudgetChatMemory(Object id, int maxTokens, TokenCountEstimator estimator, ChatMemoryStore store) {
+        this.id = id;
+        this.maxTokens = maxTokens;
+        this.estimator = estimator;
+        this.store = store;
+        this.loaded = store == null;
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public synchronized void add(ChatMessage message) {
+        ensureLoaded();
+
+        if (message instanceof SystemMessage newSystemMessage) {
+            if (newSystemMessage.equals(systemMessage)) {
+                return;
+            }
+            addSystemMessage(newSystemMessage);
+        } else {
+            addMessage(message);
+        }
+
+        evictToBudget();
+
+        if (store != null) {
+            store.updateMessages(id, messages);
+        }
+    }
+
+    @Override
+    public synchronized List<ChatMessage> messages() {
+        ensureLoaded();
+
+        List<ChatMessage> result = new ArrayList<>(messages.size() + 1);
+        if (systemMessage != null) {
+            result.add(systemMessage);
+        }
+        result.addAll(messages);
+        return result;
+    }
+
+    @Override
+    public synchronized void clear() {
+        systemMessage = null;
+        messages.clear();
+        messageTokens.clear();
+        systemTokens = 0;
+        totalTokens = 0;
+
+        if (store != null) {
+            store.deleteMessages(id);
+            loaded = true;
+        }
+    }
+
+    /**
+     * Gets the estimated token count of everything currently held
+     *
+     * @return Estimated tokens including the system message
+     */
+    public synchronized int getTokenCount() {
+        ensureLoaded();
+        return totalTokens;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * Gets the messages before the last keepTurns turns
+     *
+     * The returned prefix ends at a turn boundary, so it can be replaced as a whole by
+     * {@link #replacePrefix}.
+     *
+     * @param keepTurns Number of most recent turns to leave out
+     * @return Copy of the older messages (excluding the system message), empty if there are none
+     */
+    public synchronized List<ChatMessage> getMessagesBeforeLastTurns(int keepTurns) {
+        ensureLoaded();
+
+        int turnStart = messages.size();
+        for (int kept = 0; kept < keepTurns && turnStart > 0; kept++) {
+            turnStart = findPreviousTurnStart(turnStart - 1);
+            if (turnStart <= 0) {
+                return List.of();
+            }
+        }
+        return new ArrayList<>(messages.subList(0, turnStart));
+    }
+
+    /**
+     * Replaces the oldest messages if they are still exactly the given prefix
+     *
+     * Used to swap older turns for a summary computed in the background: if the
+     * prefix was evicted or replaced in the meantime, nothing is changed.
+     *
+     * @param prefix Messages previously returned by {@link #getMessagesBeforeLastTurns}
+     * @param replacement Messages to put in their place
+     * @return true if the prefix was replaced
+     */
+    public synchronized boolean replacePrefix(List<ChatMessage> prefix, List<ChatMessage> replacement) {
+        ensureLoaded();
+
+        if (prefix.isEmpty() || prefix.size() > messages.size()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.size(); i++) {
+            if (messages.get(i) != prefix.get(i)) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < prefix.size(); i++) {
+            totalTokens -= messageTokens.get(i);
+        }
+        messages.subList(0, prefix.size()).clear();
+        messageTokens.subList(0, prefix.size()).clear();
+
+        List<Integer> replacementTokens = new ArrayList<>(replacement.size());
+        for (ChatMessage message : replacement) {
+            int tokens = estimator.estimateTokenCountInMessage(message);
+            replacementTokens.add(tokens);
+            totalTokens += tokens;
+        }
+        messages.addAll(0, replacement);
+        messageTokens.addAll(0, replacementTokens);
+
+        if (store != null) {
+            store.updateMessages(id, messages);
+        }
+        return true;
+    }
+
+    /**
+     * Loads the persisted messages on first access
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        for (ChatMessage message : store.getMessages(id)) {
+            if (message instanceof SystemMessage storedSystemMessage) {
+                addSystemMessage(storedSystemMessage);
+            } else {
+                addMessage(message);
+            }
+        }
+        evictToBudget();
+
+        if (!messages.isEmpty()) {
+            logger.debug("Loaded {} messages (~{} tokens) for memory {}", messages.size(), totalTokens, id);
+        }
+    }
+
+    private void addSystemMessage(SystemMessage newSystemMessage) {
+        totalTokens -= systemTokens;
+        systemMessage = newSystemMessage;
+        systemTokens = estimator.estimateTokenCountInMessage(newSystemMessage);
+        totalTokens += systemTokens;
+    }
+
+    private void addMessage(ChatMessage message) {
+        int tokens = estimator.estimateTokenCountInMessage(message);
+        messages.add(message);
+        messageTokens.add(tokens);
+        totalTokens += tokens;
+    }
+
+    /**
+     * Evicts oldest whole turns until the estimated size fits the budget
+     */
+    private void evictToBudget() {
+        while (totalTokens > maxTokens) {
+            int turnEnd = findNextTurnStart(1);
+            if (turnEnd < 0) {
+                // Only the latest turn is left - keep it even if it exceeds the budget
+                logger.debug("Memory {} holds {} tokens in its latest turn (budget {})", id, totalTokens, maxTokens);
+                return;
+            }
+
+            int evictedTokens = 0;
+            for (int i = 0; i < turnEnd; i++) {
+                evictedTokens += messageTokens.get(i);
+            }
+            messages.subList(0, turnEnd).clear();
+            messageTokens.subList(0, turnEnd).clear();
+            totalTokens -= evictedTokens;
+
+            logger.debug("Evicted {} messages (~{} tokens) from memory {} - now ~{} of {} tokens",
+                        turnEnd, evictedTokens, id, totalTokens, maxTokens);
+        }
+    }
+
+    /**
+     * Finds the index of the last user message at or before the given index
+     *
+     * @param fromIndex Index to start searching backwards from
+     * @return Index of the turn start, or -1 if there is none
+     */
+    private int findPreviousTurnStart(int fromIndex) {
+        for (int i = fromIndex; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the index of the first user message at or after the given index
+     *
+     * @param fromIndex Index to start searching from
+     * @return Index of the next turn start, or -1 if there is none
+     */
+    private int findNextTurnStart(int fromIndex) {
+        for (int i = fromIndex; i < messages.size(); i++) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,227 @@
+package org.example.service.memory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WindowTinyLfuPolicy - Weighted W-TinyLFU eviction policy
+ *
+ * Entries are weighted (estimated bytes) and held in three LRU segments:
+ * - Window (1% of capacity): admits every new entry, absorbing bursts of one-off keys
+ * - Probation: main-region entries that have not been re-accessed since admission
+ * - Protected (80% of the main region): main-region entries accessed again
+ *
+ * When the window overflows, its oldest entry becomes a candidate for the main region.
+ * If the main region is full, the candidate competes with the probation LRU victim and
+ * is only admitted if the frequency sketch says it was used more often recently. A burst
+ * of new, never-repeated conversation IDs therefore cycles through the small window
+ * instead of flushing the conversations users keep coming back to.
+ *
+ * Not thread-safe; callers synchronize access. Only keys and weights are tracked here.
+ *
+ * @param <K> Key type
+ */
+class WindowTinyLfuPolicy<K> {
+
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.80;
+
+    private final long maxWeight;
+    private final long windowMaxWeight;
+    private final long protectedMaxWeight;
+    private final FrequencySketch sketch;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Long> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Long> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Long> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    WindowTinyLfuPolicy(long maxWeight, int expectedKeys) {
+        this.maxWeight = maxWeight;
+        this.windowMaxWeight = Math.max(1, (long) (maxWeight * WINDOW_RATIO));
+        this.protectedMaxWeight = (long) ((maxWeight - windowMaxWeight) * PROTECTED_RATIO);
+        this.sketch = new FrequencySketch(expectedKeys);
+    }
+
+    /**
+     * Adds a new entry to the window
+     *
+     * @param key The new key
+     * @param weight Its weight
+     * @return Keys evicted to make room (may include the new key itself)
+     */
+    List<K> onInsert(K key, long weight) {
+        sketch.increment(key);
+        window.put(key, weight);
+        windowWeight += weight;
+        return evict();
+    }
+
+    /**
+     * Records an access, promoting probation entries to the protected segment
+     *
+     * @param key The accessed key
+     */
+    void onAccess(K key) {
+        sketch.increment(key);
+
+        if (window.get(key) != null || protectedSegment.get(key) != null) {
+            return;
+        }
+
+        Long weight = probation.remove(key);
+        if (weight != null) {
+            probationWeight -= weight;
+            protectedSegment.put(key, weight);
+            protectedWeight += weight;
+
+            // Demote the least recently used protected entries back to probation
+            while (protectedWeight > protectedMaxWeight && protectedSegment.size() > 1) {
+                Map.Entry<K, Long> demoted = removeFirst(protectedSegment);
+                protectedWeight -= demoted.getValue();
+                probation.put(demoted.getKey(), demoted.getValue());
+                probationWeight += demoted.getValue();
+            }
+        }
+    }
+
+    /**
+     * Updates the weight of an entry
+     *
+     * @param key The key whose weight changed
+     * @param weight Its new weight
+     * @return Keys evicted to get back under the maximum weight
+     */
+    List<K> onWeightChange(K key, long weight) {
+        if (window.containsKey(key)) {
+            windowWeight += weight - window.put(key, weight);
+        } else if (probation.containsKey(key)) {
+            probationWeight += weight - probation.put(key, weight);
+        } else if (protectedSegment.containsKey(key)) {
+            protectedWeight += weight - protectedSegment.put(key, weight);
+        } else {
+            return List.of();
+        }
+        return evict();
+    }
+
+    /**
+     * Stops tracking an entry removed for reasons other than eviction
+     *
+     * @param key The removed key
+     */
+    void onRemove(K key) {
+        Long weight;
+        if ((weight = window.remove(key)) != null) {
+            windowWeight -= weight;
+        } else if ((weight = probation.remove(key)) != null) {
+            probationWeight -= weight;
+        } else if ((weight = protectedSegment.remove(key)) != null) {
+            protectedWeight -= weight;
+        }
+    }
+
+    void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0;
+        probationWeight = 0;
+        protectedWeight = 0;
+    }
+
+    long weightedSize() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    long maxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Moves window overflow into the main region and evicts until under the maximum weight
+     */
+    private List<K> evict() {
+        List<K> evicted = new ArrayList<>();
+
+        while (windowWeight > windowMaxWeight && !window.isEmpty()) {
+            Map.Entry<K, Long> candidate = removeFirst(window);
+            windowWeight -= candidate.getValue();
+            admit(candidate.getKey(), candidate.getValue(), evicted);
+        }
+
+        // Weight growth of existing entries can still leave the cache over capacity
+        while (weightedSize() > maxWeight) {
+            K victim = evictFirstOf(probation);
+            if (victim == null) {
+                victim = evictFirstOf(protectedSegment);
+            }
+            if (victim == null) {
+                victim = evictFirstOf(window);
+            }
+            if (victim == null) {
+                break;
+            }
+            evicted.add(victim);
+        }
+
+        return evicted;
+    }
+
+    /**
+     * TinyLFU admission of a window candidate into the main region
+     */
+    private void admit(K candidate, long candidateWeight, List<K> evicted) {
+        long mainMaxWeight = maxWeight - windowMaxWeight;
+        int candidateFrequency = sketch.frequency(candidate);
+
+        while (probationWeight + protectedWeight + candidateWeight > mainMaxWeight) {
+            LinkedHashMap<K, Long> victimSegment = !probation.isEmpty() ? probation : protectedSegment;
+            if (victimSegment.isEmpty()) {
+                break;
+            }
+
+            K victim = victimSegment.keySet().iterator().next();
+            if (candidateFrequency > sketch.frequency(victim)) {
+                evictFirstOf(victimSegment);
+                evicted.add(victim);
+            } else {
+                evicted.add(candidate);
+                return;
+            }
+        }
+
+        probation.put(candidate, candidateWeight);
+        probationWeight += candidateWeight;
+    }
+
+    private K evictFirstOf(LinkedHashMap<K, Long> segment) {
+        if (segment.isEmpty()) {
+            return null;
+        }
+        Map.Entry<K, Long> first = removeFirst(segment);
+        if (segment == window) {
+            windowWeight -= first.getValue();
+        } else if (segment == probation) {
+            probationWeight -= first.getValue();
+        } else {
+            protectedWeight -= first.getValue();
+        }
+        return first.getKey();
+    }
+
+    private static <K> Map.Entry<K, Long> removeFirst(LinkedHashMap<K, Long> segment) {
+        Iterator<Map.Entry<K, Long>> iterator = segment.entrySet().iterator();
+        Map.Entry<K, Long> first = iterator.next();
+        Map.Entry<K, Long> copy = Map.entry(first.getKey(), first.getValue());
+        iterator.remove();
+        return copy;
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.service.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WriteBackChatMemoryStore - Heap buffer in front of the conversation log
+ *
+ * Chat memories write their messages to the store on every change (several times per
+ * turn) and a message window memory reads them back on every access. This store keeps
+ * the latest messages of each conversation in use on the heap:
+ * - Updates only replace the buffered list and mark it dirty; nothing is serialized
+ * - Reads return the buffered list, so the log is decoded once per conversation
+ * - {@link #persist} writes one snapshot of a dirty conversation to the log, once per
+ *   turn and off the request thread
+ *
+ * The buffered lists share their message objects with the memories, so a conversation
+ * costs one list of references. Conversations leaving the conversation store are
+ * written and dropped from the buffer with {@link #release}.
+ */
+public class WriteBackChatMemoryStore implements ChatMemoryStore {
+
+    private final MappedLogChatMemoryStore log;
+    private final Map<String, Buffered> buffers = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a write-back buffer
+     *
+     * @param log The conversation log written to
+     */
+    public WriteBackChatMemoryStore(MappedLogChatMemoryStore log) {
+        this.log = log;
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        return buffers.computeIfAbsent(memoryId.toString(),
+            id -> new Buffered(List.copyOf(log.getMessages(id)), false)).messages;
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        buffers.put(memoryId.toString(), new Buffered(List.copyOf(messages), true));
+    }
+
+    @Override
+    public synchronized void deleteMessages(Object memoryId) {
+        buffers.remove(memoryId.toString());
+        log.deleteMessages(memoryId);
+    }
+
+    /**
+     * Writes the buffered messages of a conversation to the log if they changed
+     *
+     * Serialized, so a snapshot read earlier is never written after a later one.
+     *
+     * @param conversationId The conversation ID
+     */
+    public synchronized void persist(String conversationId) {
+        Buffered buffered = buffers.get(conversationId);
+        if (buffered == null || !buffered.dirty) {
+            return;
+        }
+
+        log.updateMessages(conversationId, buffered.messages);
+        // Unless a newer update arrived meanwhile, which stays dirty
+        buffers.replace(conversationId, buffered, new Buffered(buffered.messages, false));
+    }
+
+    /**
+     * Writes the buffered messages of a conversation if needed and drops them from the buffer
+     *
+     * @param conversationId The conversation ID
+     */
+    public void release(String conversationId) {
+        persist(conversationId);
+        buffers.computeIfPresent(conversationId, (id, buffered) -> buffered.dirty ? buffered : null);
+    }
+
+    /**
+     * Writes every changed conversation to the log (e.g. on shutdown)
+     *
+     * @return Number of conversations written
+     */
+    public int persistAll() {
+        int written = 0;
+        for (Map.Entry<String, Buffered> entry : buffers.entrySet()) {
+            if (entry.getValue().dirty) {
+                persist(entry.getKey());
+                written++;
+            }
+        }
+        return written;
+    }
+
+    public int getBufferedConversationCount() {
+        return buffers.size();
+    }
+
+    /**
+     * Messages of one conversation and whether they differ from the log
+     *
+     * Compared by identity, so persisting only marks clean the exact list it wrote.
+     */
+    private static final class Buffered {
+        private final List<ChatMessage> messages;
+        private final boolean dirty;
+
+        Buffered(List<ChatMessage> messages, boolean dirty) {
+            this.messages = messages;
+            this.dirty = dirty;
+        }
+    }
+}
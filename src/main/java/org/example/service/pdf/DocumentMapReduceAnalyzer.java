@@ -0,0 +1,307 @@
+package org.example.service.pdf;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.TechnicalConsultantAgent;
+import org.example.service.ModelUsageTracker;
+import org.example.service.memory.LocalTokenCountEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DocumentMapReduceAnalyzer - Analysis of documents longer than a single prompt
+ *
+ * Documents are no longer cut at the first 50K characters before the analysis agent
+ * sees them. Instead:
+ * - Map: the text is split into parts of at most chunkTokens estimated tokens (at
+ *   paragraph, line or word boundaries), and each part is analyzed on its own against
+ *   the task (the user's question or the standard recap instructions)
+ * - Reduce: the notes on all parts are combined into one answer by a final call
+ *
+ * Parts are analyzed concurrently, at most maxConcurrentChunks at a time per document,
+ * on a bounded pool shared by all documents. Latency is bounded by the tool deadline:
+ * parts not analyzed by then are left out and the combined answer says so.
+ *
+ * Text that fits in a single part is analyzed with one call, exactly as before.
+ */
+@Component
+public class DocumentMapReduceAnalyzer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentMapReduceAnalyzer.class);
+
+    // Task given to the map and reduce calls when the user did not ask a specific question
+    static final String RECAP_TASK = "Recap this document: provide 1) a brief executive summary (2-3 sentences), "
+        + "2) key points (bullet format), 3) main topics covered, and 4) a conclusion. Be concise but comprehensive.";
+
+    // First guess of characters per token when sizing a part (letters are ~4 per token)
+    private static final int CHARS_PER_TOKEN_GUESS = 4;
+
+    @Autowired
+    private TechnicalConsultantAgent technicalConsultantAgent;
+
+    @Autowired
+    private LocalTokenCountEstimator tokenCountEstimator;
+
+    @Autowired
+    private ModelUsageTracker modelUsageTracker;
+
+    @Value("${pdf.analysis.map-reduce.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pdf.analysis.map-reduce.max-characters:400000}")
+    private int maxCharacters;
+
+    @Value("${pdf.analysis.map-reduce.chunk-tokens:12000}")
+    private int chunkTokens;
+
+    @Value("${pdf.analysis.map-reduce.max-concurrent-chunks:4}")
+    private int maxConcurrentChunks;
+
+    @Value("${pdf.analysis.map-reduce.threads:16}")
+    private int threads;
+
+    private ThreadPoolExecutor mapExecutor;
+
+    /**
+     * Outcome of a document analysis
+     *
+     * @param text The analysis
+     * @param partCount Number of parts the document was split into (1 when analyzed in one call)
+     * @param missingParts Numbers of the parts that could not be analyzed (failed or out of time)
+     */
+    public record Analysis(String text, int partCount, List<Integer> missingParts) {
+    }
+
+    /**
+     * Creates the pool running the map calls
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            logger.info("Map-reduce document analysis disabled");
+            return;
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        mapExecutor = new ThreadPoolExecutor(
+            threads, threads,
+            60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(threads * 16),
+            runnable -> {
+                Thread thread = new Thread(runnable, "pdf-map-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        mapExecutor.allowCoreThreadTimeOut(true);
+
+        logger.info("Map-reduce document analysis enabled - up to {} characters, parts of {} tokens, " +
+                   "{} concurrent parts per document, {} threads", maxCharacters, chunkTokens, maxConcurrentChunks, threads);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the number of characters of a document worth extracting for an analysis
+     *
+     * @return Maximum document length analyzed
+     */
+    public int getMaxCharacters() {
+        return maxCharacters;
+    }
+
+    /**
+     * Analyzes a document, in several parts if it does not fit in one
+     *
+     * @param documentText The document text
+     * @param prompt The user's question, or null/blank for a general recap
+     * @param deadline Time after which no further parts are waited for
+     * @return The analysis
+     * @throws DocumentAnalysisException if no part could be analyzed
+     */
+    public Analysis analyze(String documentText, String prompt, Instant deadline) throws DocumentAnalysisException {
+        boolean hasPrompt = prompt != null && !prompt.trim().isEmpty();
+        List<String> parts = splitIntoParts(documentText);
+
+        if (parts.size() <= 1) {
+            String text = hasPrompt
+                ? technicalConsultantAgent.analyzeWithCustomPrompt(prompt, documentText)
+                : technicalConsultantAgent.recapDocument(documentText);
+            return new Analysis(text, 1, List.of());
+        }
+
+        long startTime = System.currentTimeMillis();
+        String task = hasPrompt ? prompt : RECAP_TASK;
+        String[] notes = analyzeParts(task, parts, deadline);
+
+        StringBuilder partialAnalyses = new StringBuilder();
+        List<Integer> missingParts = new ArrayList<>();
+        for (int i = 0; i < notes.length; i++) {
+            partialAnalyses.append("[Part ").append(i + 1).append(" of ").append(notes.length).append("]\n");
+            if (notes[i] != null) {
+                partialAnalyses.append(notes[i].trim());
+            } else {
+                partialAnalyses.append("(could not be analyzed)");
+                missingParts.add(i + 1);
+            }
+            partialAnalyses.append("\n\n");
+        }
+
+        if (missingParts.size() == notes.length) {
+            throw new DocumentAnalysisException("None of the " + notes.length + " parts of the document could be analyzed");
+        }
+
+        String text = technicalConsultantAgent.combineDocumentAnalyses(task, partialAnalyses.toString());
+
+        logger.info("Analyzed document in {} parts ({} missing) in {}ms",
+                   parts.size(), missingParts.size(), System.currentTimeMillis() - startTime);
+        return new Analysis(text, parts.size(), missingParts);
+    }
+
+    /**
+     * Splits text into parts of at most chunkTokens estimated tokens
+     *
+     * Parts end at a paragraph break, line break or space in their second half when
+     * there is one, so sentences are rarely cut.
+     *
+     * @param text The document text
+     * @return The parts, in document order
+     */
+    List<String> splitIntoParts(String text) {
+        List<String> parts = new ArrayList<>();
+        if (!enabled || tokenCountEstimator.estimateTokenCountInText(text) <= chunkTokens) {
+            parts.add(text);
+            return parts;
+        }
+
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(text.length(), start + chunkTokens * CHARS_PER_TOKEN_GUESS);
+            int tokens = tokenCountEstimator.estimateTokenCountInText(text.substring(start, end));
+            while (tokens > chunkTokens) {
+                // Shrink proportionally, with some margin so this rarely takes more than one step
+                end = start + Math.max(1, (int) ((long) (end - start) * chunkTokens * 9 / 10 / tokens));
+                tokens = tokenCountEstimator.estimateTokenCountInText(text.substring(start, end));
+            }
+            if (end < text.length()) {
+                end = findBreak(text, start, end);
+            }
+
+            String part = text.substring(start, end).trim();
+            if (!part.isEmpty()) {
+                parts.add(part);
+            }
+            start = end;
+        }
+        return parts;
+    }
+
+    private static int findBreak(String text, int start, int end) {
+        int earliest = start + (end - start) / 2;
+        for (String separator : new String[] {"\n\n", "\n", " "}) {
+            int index = text.lastIndexOf(separator, end - separator.length());
+            if (index > earliest) {
+                return index + separator.length();
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Runs the map calls, at most maxConcurrentChunks at a time, until all are done or the deadline passes
+     *
+     * @return Notes per part, null for parts not analyzed
+     */
+    private String[] analyzeParts(String task, List<String> parts, Instant deadline) {
+        Semaphore permits = new Semaphore(Math.max(1, maxConcurrentChunks));
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < parts.size(); i++) {
+                if (!permits.tryAcquire(remainingMillis(deadline), TimeUnit.MILLISECONDS)) {
+                    logger.warn("Deadline reached before part {} of {} could be analyzed", i + 1, parts.size());
+                    break;
+                }
+
+                int partNumber = i + 1;
+                String partText = parts.get(i);
+                CompletableFuture<String> future;
+                try {
+                    future = CompletableFuture.supplyAsync(modelUsageTracker.propagate(
+                        () -> technicalConsultantAgent.analyzeDocumentPart(task, partNumber, parts.size(), partText)),
+                        mapExecutor);
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    logger.warn("Document analysis pool saturated - skipping parts {} to {}", partNumber, parts.size());
+                    break;
+                }
+                future.whenComplete((notes, error) -> {
+                    permits.release();
+                    if (error != null) {
+                        logger.warn("Failed to analyze part {} of {}: {}", partNumber, parts.size(), error.getMessage());
+                    }
+                });
+                futures.add(future);
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .get(remainingMillis(deadline), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Failed and unfinished parts are reported as missing
+        }
+
+        String[] notes = new String[parts.size()];
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<String> future = futures.get(i);
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                notes[i] = future.join();
+            } else {
+                future.cancel(false);
+            }
+        }
+        return notes;
+    }
+
+    private static long remainingMillis(Instant deadline) {
+        return Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+    }
+
+    /**
+     * Shuts down the map pool
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (mapExecutor != null) {
+            mapExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Exception for documents that could not be analyzed
+     */
+    public static class DocumentAnalysisException extends Exception {
+        public DocumentAnalysisException(String message) {
+            super(message);
+        }
+    }
+}
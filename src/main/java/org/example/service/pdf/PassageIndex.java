@@ -0,0 +1,235 @@
+package org.example.service.pdf;
+
+import org.example.service.PdfProcessorService.PdfProcessingResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * PassageIndex - In-memory BM25 index over the passages of one extracted document
+ *
+ * The text is cut into passages that never span two pages: a passage ends at the first
+ * paragraph break after the target size, or at a line or word boundary when there is no
+ * paragraph break within twice that size. Every search hit carries the page it is on.
+ *
+ * Terms are lowercased runs of letters and digits, which keeps identifiers such as VINs
+ * and policy numbers intact as single terms; a short list of English stop words is
+ * ignored. Postings are stored as parallel int arrays per term, so an index costs a
+ * small multiple of the text it covers.
+ *
+ * Immutable once built and safe to search from several threads.
+ */
+public class PassageIndex {
+
+    // Standard BM25 parameters: term frequency saturation and length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "are", "as", "at", "be", "by", "can", "do", "does", "for", "from", "how",
+        "i", "in", "is", "it", "me", "my", "of", "on", "or", "please", "tell", "that", "the", "this",
+        "to", "was", "what", "when", "where", "which", "who", "with", "you", "your"
+    );
+
+    /**
+     * A passage of the document
+     *
+     * @param pageNumber Page the passage is on (0 if page positions are unknown)
+     * @param offset Position of the passage in the extracted text
+     * @param text The passage text
+     */
+    public record Passage(int pageNumber, int offset, String text) {
+    }
+
+    private final List<Passage> passages;
+    private final Map<String, Postings> postingsByTerm;
+    private final int[] passageLengths;
+    private final double averageLength;
+
+    private PassageIndex(List<Passage> passages, Map<String, Postings> postingsByTerm, int[] passageLengths) {
+        this.passages = passages;
+        this.postingsByTerm = postingsByTerm;
+        this.passageLengths = passageLengths;
+        this.averageLength = Math.max(1.0, Arrays.stream(passageLengths).average().orElse(1.0));
+    }
+
+    /**
+     * Builds the index of an extracted document
+     *
+     * @param result The extraction result (its page offsets locate the passages)
+     * @param targetPassageChars Size after which the next paragraph break ends a passage
+     * @return The index
+     */
+    public static PassageIndex build(PdfProcessingResult result, int targetPassageChars) {
+        String text = result.getExtractedText();
+        int[] pageOffsets = result.getPageOffsets();
+
+        List<Passage> passages = new ArrayList<>();
+        if (pageOffsets.length == 0) {
+            addPassages(passages, text, 0, text.length(), 0, targetPassageChars);
+        } else {
+            for (int page = 1; page <= pageOffsets.length; page++) {
+                int start = Math.min(pageOffsets[page - 1], text.length());
+                int end = page < pageOffsets.length ? Math.min(pageOffsets[page], text.length()) : text.length();
+                addPassages(passages, text, start, end, page, targetPassageChars);
+            }
+        }
+
+        Map<String, Postings> postingsByTerm = new HashMap<>();
+        int[] passageLengths = new int[passages.size()];
+        Map<String, Integer> termCounts = new HashMap<>();
+        for (int id = 0; id < passages.size(); id++) {
+            termCounts.clear();
+            List<String> terms = tokenize(passages.get(id).text());
+            for (String term : terms) {
+                termCounts.merge(term, 1, Integer::sum);
+            }
+            passageLengths[id] = terms.size();
+            for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
+                postingsByTerm.computeIfAbsent(entry.getKey(), term -> new Postings()).add(id, entry.getValue());
+            }
+        }
+
+        return new PassageIndex(List.copyOf(passages), postingsByTerm, passageLengths);
+    }
+
+    /**
+     * Finds the passages most relevant to a query
+     *
+     * A term occurring in most passages adds almost nothing to a score, so a minimum score
+     * leaves out passages that only share such common terms with the query.
+     *
+     * @param query The question
+     * @param limit Maximum number of passages returned
+     * @param minScore Lowest BM25 score of a returned passage
+     * @return Matching passages in document order (empty if no passage reaches the minimum score)
+     */
+    public List<Passage> search(String query, int limit, double minScore) {
+        double[] scores = new double[passages.size()];
+        boolean matched = false;
+
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            Postings postings = postingsByTerm.get(term);
+            if (postings == null) {
+                continue;
+            }
+            matched = true;
+            double idf = Math.log(1 + (passages.size() - postings.size + 0.5) / (postings.size + 0.5));
+            for (int i = 0; i < postings.size; i++) {
+                int id = postings.passageIds[i];
+                int frequency = postings.frequencies[i];
+                double norm = K1 * (1 - B + B * passageLengths[id] / averageLength);
+                scores[id] += idf * frequency * (K1 + 1) / (frequency + norm);
+            }
+        }
+        if (!matched) {
+            return List.of();
+        }
+
+        // Keep the best passages, then return them in reading order
+        PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.comparingDouble(id -> scores[id]));
+        for (int id = 0; id < scores.length; id++) {
+            if (scores[id] <= 0 || scores[id] < minScore) {
+                continue;
+            }
+            best.add(id);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        return best.stream().sorted().map(passages::get).toList();
+    }
+
+    public int getPassageCount() {
+        return passages.size();
+    }
+
+    /**
+     * Cuts the text of one page into passages
+     */
+    private static void addPassages(List<Passage> passages, String text, int start, int end, int pageNumber,
+                                    int targetChars) {
+        int passageStart = start;
+        while (passageStart < end) {
+            int passageEnd = Math.min(end, passageStart + targetChars);
+            if (passageEnd < end) {
+                // Prefer a paragraph break after the target size, up to twice the target
+                int paragraphBreak = text.indexOf("\n\n", passageEnd);
+                if (paragraphBreak >= 0 && paragraphBreak < Math.min(end, passageStart + 2 * targetChars)) {
+                    passageEnd = paragraphBreak;
+                } else {
+                    passageEnd = findBreakBefore(text, passageStart, passageEnd);
+                }
+            }
+
+            String passage = text.substring(passageStart, passageEnd).trim();
+            if (!passage.isEmpty()) {
+                passages.add(new Passage(pageNumber, passageStart, passage));
+            }
+            passageStart = passageEnd;
+        }
+    }
+
+    private static int findBreakBefore(String text, int start, int end) {
+        int earliest = start + (end - start) / 2;
+        for (char separator : new char[] {'\n', ' '}) {
+            int index = text.lastIndexOf(separator, end - 1);
+            if (index > earliest) {
+                return index + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Splits text into lowercased terms of letters and digits, without stop words
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                String term = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!STOP_WORDS.contains(term)) {
+                    terms.add(term);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Passages containing a term and how often it occurs in each
+     */
+    private static class Postings {
+        private int[] passageIds = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        void add(int passageId, int frequency) {
+            if (size == passageIds.length) {
+                passageIds = Arrays.copyOf(passageIds, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            passageIds[size] = passageId;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.service.pdf;
+
+import org.example.service.PdfProcessorService.PdfProcessingResult;
+import org.example.service.pdf.PassageIndex.Passage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PassageRetriever - Selects the passages of a document that are relevant to a question
+ *
+ * Questions about a document (e.g. "what is the VIN?") are answered from the top-k
+ * passages of a {@link PassageIndex} instead of the full extracted text. Indexes are
+ * kept per conversation, so follow-up questions on the same upload reuse the index:
+ * - Keyed by conversation, file path and a fingerprint of the extracted text (a new
+ *   upload under the same name gets a new index)
+ * - At most maxDocuments indexes are held, least recently used first out
+ * - Dropped when their conversation leaves the conversation store
+ *
+ * Short documents are not indexed: their full text is cheap enough to send.
+ *
+ * Only narrow questions are answered from passages. Whole-document tasks ("summarize this
+ * policy", "review the whole document") and questions whose terms match no passage well
+ * (minScore) get no passages, so they are analyzed from the full text with complete coverage.
+ */
+@Component
+public class PassageRetriever {
+
+    private static final Logger logger = LoggerFactory.getLogger(PassageRetriever.class);
+
+    private static final String KEY_SEPARATOR = "\u0000";
+
+    // Query terms asking for the whole document rather than a detail of it
+    private static final Set<String> WHOLE_DOCUMENT_TERMS = Set.of(
+        "summarize", "summarise", "summary", "summaries", "recap", "overview", "outline", "review",
+        "entire", "whole", "everything", "all", "every", "complete", "full"
+    );
+
+    @Value("${pdf.retrieval.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pdf.retrieval.top-k:8}")
+    private int topK;
+
+    @Value("${pdf.retrieval.min-document-characters:8000}")
+    private int minDocumentCharacters;
+
+    @Value("${pdf.retrieval.min-score:1.0}")
+    private double minScore;
+
+    @Value("${pdf.retrieval.passage-characters:800}")
+    private int passageCharacters;
+
+    @Value("${pdf.retrieval.max-documents:256}")
+    private int maxDocuments;
+
+    // Access-ordered: iteration starts at the least recently used index
+    private final LinkedHashMap<String, PassageIndex> indexes = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * Checks whether questions about a document should be answered from retrieved passages
+     *
+     * @param result The extraction result
+     * @return true if retrieval is enabled and the document is long enough to benefit
+     */
+    public boolean isApplicable(PdfProcessingResult result) {
+        return enabled && result.getExtractedText().length() >= minDocumentCharacters;
+    }
+
+    /**
+     * Retrieves the passages of a document most relevant to a question
+     *
+     * @param conversationId The conversation the document was uploaded to
+     * @param filePath The standardized path of the document
+     * @param result The extraction result
+     * @param question The user's question
+     * @return Up to topK passages in document order (empty if the question asks for the whole
+     *         document or nothing matches it well)
+     */
+    public List<Passage> retrieve(String conversationId, String filePath, PdfProcessingResult result, String question) {
+        if (asksForWholeDocument(question)) {
+            logger.debug("Not retrieving passages of {} for a whole-document task: {}", filePath, question);
+            return List.of();
+        }
+
+        String key = conversationId + KEY_SEPARATOR + filePath + KEY_SEPARATOR
+            + result.getExtractedText().length() + ":" + result.getExtractedText().hashCode();
+
+        PassageIndex index;
+        synchronized (indexes) {
+            index = indexes.get(key);
+        }
+        if (index == null) {
+            long startTime = System.currentTimeMillis();
+            index = PassageIndex.build(result, passageCharacters);
+            logger.debug("Indexed {} passages of {} in {}ms", index.getPassageCount(), filePath,
+                        System.currentTimeMillis() - startTime);
+            synchronized (indexes) {
+                indexes.put(key, index);
+                Iterator<PassageIndex> iterator = indexes.values().iterator();
+                while (indexes.size() > maxDocuments && iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+        }
+
+        List<Passage> passages = index.search(question, topK, minScore);
+        if (passages.isEmpty()) {
+            logger.debug("No passage of {} matches the question well enough: {}", filePath, question);
+        }
+        return passages;
+    }
+
+    /**
+     * Checks whether a prompt asks for a task over the whole document
+     */
+    static boolean asksForWholeDocument(String question) {
+        for (String term : PassageIndex.tokenize(question)) {
+            if (WHOLE_DOCUMENT_TERMS.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renders passages with their page references for the analysis prompt
+     *
+     * @param passages The retrieved passages
+     * @return The passages, each preceded by its page
+     */
+    public static String render(List<Passage> passages) {
+        StringBuilder rendered = new StringBuilder();
+        for (Passage passage : passages) {
+            rendered.append(passage.pageNumber() > 0 ? "[Page " + passage.pageNumber() + "]" : "[Passage]")
+                    .append('\n').append(passage.text()).append("\n\n");
+        }
+        return rendered.toString();
+    }
+
+    /**
+     * Drops the indexes of a conversation
+     *
+     * @param conversationId The conversation ID
+     * @return Number of indexes removed
+     */
+    public int removeConversation(String conversationId) {
+        String prefix = conversationId + KEY_SEPARATOR;
+        int removed = 0;
+        synchronized (indexes) {
+            Iterator<String> iterator = indexes.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().startsWith(prefix)) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    public int getIndexedDocumentCount() {
+        synchronized (indexes) {
+            return indexes.size();
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package org.example.service.pdf;
+
+import jakarta.annotation.PostConstruct;
+import org.example.service.PdfProcessorService.PdfProcessingResult;
+import org.example.service.PdfProcessorService.StopReason;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * PdfExtractionCache - Content-addressed cache of PDF extraction results
+ *
+ * Results are keyed by the SHA-256 of the PDF bytes, so the same document uploaded by
+ * different users, in different conversations or under different file names is only
+ * parsed by PDFBox once.
+ *
+ * Two tiers:
+ * - Heap: LRU map bounded by the estimated bytes of the cached text
+ * - Disk: one gzip file per document, bounded by total size (oldest files deleted first);
+ *   survives restarts and is promoted to the heap tier on a hit
+ *
+ * Extracted text of customer documents is personal data, so the disk tier is private
+ * and short-lived: its directory is restricted to the owner (rwx------ on POSIX file
+ * systems, entries rw-------), and entries older than the maximum age are treated as
+ * misses and deleted - on lookup, at startup and at most hourly while entries are written.
+ *
+ * Disk entries carry a format version; entries written by an older format are treated
+ * as misses and overwritten.
+ */
+@Component
+public class PdfExtractionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfExtractionCache.class);
+
+    private static final int FORMAT_VERSION = 4;
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+    private static final String FILE_SUFFIX = ".gz";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Value("${pdf.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pdf.cache.heap-max-bytes:33554432}")
+    private long heapMaxBytes;
+
+    @Value("${pdf.cache.disk-directory:${user.home}/.ai-agent/pdf-cache}")
+    private String diskDirectory;
+
+    @Value("${pdf.cache.disk-max-bytes:536870912}")
+    private long diskMaxBytes;
+
+    @Value("${pdf.cache.disk-max-age-hours:24}")
+    private long diskMaxAgeHours;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, PdfProcessingResult> heapEntries = new LinkedHashMap<>(64, 0.75f, true);
+    private long heapBytes;
+
+    private Path diskPath;
+    private long diskMaxAgeMillis;
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final AtomicLong nextPurgeMillis = new AtomicLong();
+
+    private final AtomicLong heapHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Snapshot of cache statistics
+     */
+    public record Stats(
+        long heapHits,
+        long diskHits,
+        long misses,
+        int heapEntries,
+        long heapBytes,
+        long heapMaxBytes,
+        long diskBytes,
+        long diskMaxBytes
+    ) {
+        public double hitRate() {
+            long requests = heapHits + diskHits + misses;
+            return requests == 0 ? 0.0 : (double) (heapHits + diskHits) / requests;
+        }
+    }
+
+    /**
+     * Prepares the disk tier and measures what is already stored there
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            logger.info("PDF extraction cache disabled");
+            return;
+        }
+
+        try {
+            diskPath = Path.of(diskDirectory);
+            diskMaxAgeMillis = TimeUnit.HOURS.toMillis(diskMaxAgeHours);
+            createPrivateDirectory(diskPath);
+            deleteTempFiles();
+            try (Stream<Path> files = Files.list(diskPath)) {
+                diskBytes.set(files.filter(this::isCacheFile).mapToLong(PdfExtractionCache::sizeOf).sum());
+            }
+            purgeExpired();
+            logger.info("PDF extraction cache ready - heap budget {} bytes, disk tier {} ({} of {} bytes used, " +
+                       "entries kept {}h)", heapMaxBytes, diskPath, diskBytes.get(), diskMaxBytes, diskMaxAgeHours);
+        } catch (IOException e) {
+            logger.warn("PDF extraction cache disk tier unavailable ({}): {} - using heap tier only",
+                       diskDirectory, e.getMessage());
+            diskPath = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Computes the cache key of a document
+     *
+     * @param content Stream over the PDF bytes (read to the end, not closed)
+     * @return Hex-encoded SHA-256 of the content
+     * @throws IOException if the content cannot be read
+     */
+    public String computeKey(InputStream content) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[16384];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Looks up a cached extraction result
+     *
+     * @param key Key from {@link #computeKey}
+     * @return The cached result, or null on a miss
+     */
+    public PdfProcessingResult get(String key) {
+        synchronized (heapEntries) {
+            PdfProcessingResult result = heapEntries.get(key);
+            if (result != null) {
+                heapHits.incrementAndGet();
+                return result;
+            }
+        }
+
+        PdfProcessingResult result = readFromDisk(key);
+        if (result != null) {
+            diskHits.incrementAndGet();
+            putInHeap(key, result);
+            return result;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores an extraction result in both tiers
+     *
+     * @param key Key from {@link #computeKey}
+     * @param result The extraction result
+     */
+    public void put(String key, PdfProcessingResult result) {
+        putInHeap(key, result);
+        writeToDisk(key, result);
+    }
+
+    /**
+     * Gets a snapshot of the cache statistics
+     *
+     * @return Hit/miss counts and tier sizes
+     */
+    public Stats getStats() {
+        synchronized (heapEntries) {
+            return new Stats(heapHits.get(), diskHits.get(), misses.get(), heapEntries.size(), heapBytes,
+                heapMaxBytes, diskBytes.get(), diskMaxBytes);
+        }
+    }
+
+    private void putInHeap(String key, PdfProcessingResult result) {
+        long weight = weightOf(result);
+        if (weight > heapMaxBytes) {
+            return;
+        }
+
+        synchronized (heapEntries) {
+            PdfProcessingResult previous = heapEntries.put(key, result);
+            if (previous != null) {
+                heapBytes -= weightOf(previous);
+            }
+            heapBytes += weight;
+
+            Iterator<PdfProcessingResult> iterator = heapEntries.values().iterator();
+            while (heapBytes > heapMaxBytes && iterator.hasNext()) {
+                heapBytes -= weightOf(iterator.next());
+                iterator.remove();
+            }
+        }
+    }
+
+    private PdfProcessingResult readFromDisk(String key) {
+        if (diskPath == null) {
+            return null;
+        }
+        Path file = diskPath.resolve(key + FILE_SUFFIX);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        if (isExpired(file, System.currentTimeMillis())) {
+            deleteEntry(file);
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int pageCount = in.readInt();
+            int finalCharacterCount = in.readInt();
+            int originalCharacterCount = in.readInt();
+            long processingTimeMs = in.readLong();
+            int pagesRead = in.readInt();
+            int[] pageOffsets = new int[in.readInt()];
+            for (int i = 0; i < pageOffsets.length; i++) {
+                pageOffsets[i] = in.readInt();
+            }
+            int stopReason = in.readByte();
+            if (stopReason < 0 || stopReason >= StopReason.values().length) {
+                throw new IOException("Unknown stop reason " + stopReason);
+            }
+            byte[] text = in.readNBytes(in.readInt());
+
+            return new PdfProcessingResult(new String(text, StandardCharsets.UTF_8), pageCount,
+                finalCharacterCount, originalCharacterCount, processingTimeMs, pagesRead, pageOffsets, StopReason.values()[stopReason]);
+        } catch (IOException e) {
+            logger.warn("Discarding unreadable PDF cache entry {}: {}", file, e.getMessage());
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, PdfProcessingResult result) {
+        if (diskPath == null) {
+            return;
+        }
+
+        Path file = diskPath.resolve(key + FILE_SUFFIX);
+        Path temp = null;
+        try {
+            byte[] text = result.getExtractedText().getBytes(StandardCharsets.UTF_8);
+            // One temp file per writer, so concurrent puts of the same document never share one
+            temp = POSIX
+                ? Files.createTempFile(diskPath, key, TEMP_SUFFIX, PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE))
+                : Files.createTempFile(diskPath, key, TEMP_SUFFIX);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(result.getPageCount());
+                out.writeInt(result.getFinalCharacterCount());
+                out.writeInt(result.getOriginalCharacterCount());
+                out.writeLong(result.getProcessingTimeMs());
+                out.writeInt(result.getPagesRead());
+                out.writeInt(result.getPageOffsets().length);
+                for (int pageOffset : result.getPageOffsets()) {
+                    out.writeInt(pageOffset);
+                }
+                out.writeByte(result.getStopReason().ordinal());
+                out.writeInt(text.length);
+                out.write(text);
+            }
+
+            if (diskBytes.addAndGet(moveIntoPlace(temp, file)) > diskMaxBytes) {
+                trimDisk();
+            }
+            long now = System.currentTimeMillis();
+            long nextPurge = nextPurgeMillis.get();
+            if (now >= nextPurge && nextPurgeMillis.compareAndSet(nextPurge, now + PURGE_INTERVAL_MILLIS)) {
+                purgeExpired();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write PDF cache entry {}: {}", file, e.getMessage());
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    /**
+     * Replaces a disk entry with a completely written temp file
+     *
+     * Serialized with the other changes of the disk tier, so an entry replaced by two
+     * writers at once is counted once.
+     *
+     * @return Change of the disk tier's size in bytes
+     */
+    private synchronized long moveIntoPlace(Path temp, Path file) throws IOException {
+        long previousSize = Files.exists(file) ? sizeOf(file) : 0;
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return sizeOf(file) - previousSize;
+    }
+
+    /**
+     * Deletes temp files left behind by writers that did not finish (e.g. a crash)
+     */
+    private void deleteTempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(diskPath)) {
+            files.filter(file -> file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                .forEach(PdfExtractionCache::deleteQuietly);
+        }
+    }
+
+    /**
+     * Deletes the least recently written disk entries until the disk tier fits its budget
+     */
+    private synchronized void trimDisk() {
+        if (diskBytes.get() <= diskMaxBytes) {
+            return;
+        }
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(diskPath)) {
+            files = stream.filter(this::isCacheFile)
+                .sorted(Comparator.comparingLong(PdfExtractionCache::lastModifiedOf))
+                .toList();
+        } catch (IOException e) {
+            logger.warn("Failed to list PDF cache directory {}: {}", diskPath, e.getMessage());
+            return;
+        }
+
+        int deleted = 0;
+        for (Path file : files) {
+            if (diskBytes.get() <= diskMaxBytes * 9 / 10) {
+                break;
+            }
+            long size = sizeOf(file);
+            if (deleteQuietly(file)) {
+                diskBytes.addAndGet(-size);
+                deleted++;
+            }
+        }
+        logger.debug("Trimmed {} PDF cache entries from disk - {} bytes used", deleted, diskBytes.get());
+    }
+
+    /**
+     * Deletes the disk entries older than the maximum age
+     */
+    private synchronized void purgeExpired() {
+        long now = System.currentTimeMillis();
+        List<Path> expired;
+        try (Stream<Path> stream = Files.list(diskPath)) {
+            expired = stream.filter(this::isCacheFile).filter(file -> isExpired(file, now)).toList();
+        } catch (IOException e) {
+            logger.warn("Failed to list PDF cache directory {}: {}", diskPath, e.getMessage());
+            return;
+        }
+
+        int deleted = 0;
+        for (Path file : expired) {
+            if (deleteEntry(file)) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} PDF cache entries older than {}h - {} bytes used", deleted, diskMaxAgeHours, diskBytes.get());
+        }
+    }
+
+    private boolean isExpired(Path file, long nowMillis) {
+        return lastModifiedOf(file) < nowMillis - diskMaxAgeMillis;
+    }
+
+    private synchronized boolean deleteEntry(Path file) {
+        long size = sizeOf(file);
+        if (deleteQuietly(file)) {
+            diskBytes.addAndGet(-size);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates the disk tier directory, or restricts an existing one, to the owner
+     */
+    private static void createPrivateDirectory(Path directory) throws IOException {
+        if (!POSIX) {
+            Files.createDirectories(directory);
+            return;
+        }
+        Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+        Files.setPosixFilePermissions(directory, OWNER_ONLY_DIRECTORY);
+    }
+
+    private boolean isCacheFile(Path path) {
+        return path.getFileName().toString().endsWith(FILE_SUFFIX);
+    }
+
+    private static long weightOf(PdfProcessingResult result) {
+        return ENTRY_OVERHEAD_BYTES + 2L * result.getExtractedText().length() + 4L * result.getPageOffsets().length;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModifiedOf(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
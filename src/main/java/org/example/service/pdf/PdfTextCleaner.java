@@ -0,0 +1,133 @@
+package org.example.service.pdf;
+
+/**
+ * PdfTextCleaner - Single-pass cleaner for text extracted from PDFs
+ *
+ * Cleans the text in one pass, without intermediate strings:
+ * - Removes control characters (except newlines, carriage returns and tabs)
+ * - Converts runs of tabs to a single space
+ * - Reduces runs of 3 or more whitespace characters to 2 spaces (so there are never
+ *   more than 2 consecutive newlines)
+ * - Trims leading and trailing whitespace
+ * - Applies the character limit, ending at a word boundary when one is close to it
+ *
+ * Text can be appended in pieces (e.g. page by page); a whitespace run spanning two
+ * pieces is cleaned as one run, so the result does not depend on where the pieces are
+ * split. Characters after the limit are not retained, and callers can stop appending
+ * once {@link #isLimitExceeded()} returns true.
+ */
+public class PdfTextCleaner {
+
+    // How far before the limit a space may be to end the limited text at a word boundary
+    private static final int WORD_BOUNDARY_WINDOW = 100;
+
+    private final int characterLimit;
+    private final StringBuilder text = new StringBuilder();
+
+    // Whitespace run not yet written: its length and its first two characters
+    private int runLength;
+    private char runFirst;
+    private char runSecond;
+    private boolean inTabRun;
+
+    /**
+     * Creates a text cleaner
+     *
+     * @param characterLimit Maximum number of characters of the cleaned text
+     */
+    public PdfTextCleaner(int characterLimit) {
+        this.characterLimit = characterLimit;
+    }
+
+    /**
+     * Cleans a piece of raw text and appends it to the text cleaned so far
+     *
+     * @param rawText The raw extracted text
+     */
+    public void append(CharSequence rawText) {
+        int length = rawText.length();
+        for (int i = 0; i < length && !isLimitExceeded(); i++) {
+            char c = rawText.charAt(i);
+            if (c == '\t') {
+                if (!inTabRun) {
+                    addToRun(' ');
+                    inTabRun = true;
+                }
+            } else if (c == ' ' || c == '\n' || c == '\r') {
+                inTabRun = false;
+                addToRun(c);
+            } else if (c < ' ' || c == 0x7F) {
+                // Removed control character: does not interrupt a run of tabs or whitespace
+            } else {
+                inTabRun = false;
+                writeRun();
+                text.append(c);
+            }
+        }
+    }
+
+    /**
+     * Whether more cleaned characters than the limit were collected, so further text is not needed
+     */
+    public boolean isLimitExceeded() {
+        return text.length() > characterLimit;
+    }
+
+    /**
+     * Gets the number of cleaned characters collected so far (before the limit is applied)
+     */
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * Gets the cleaned text, limited to the character limit
+     *
+     * Trailing whitespace is trimmed. If the text exceeds the limit it is cut at the limit,
+     * or at the last space when that is within 100 characters of it.
+     *
+     * @return The cleaned text
+     */
+    public String getText() {
+        if (!isLimitExceeded()) {
+            return text.toString();
+        }
+
+        int end = characterLimit;
+        int lastSpaceIndex = text.lastIndexOf(" ", characterLimit - 1);
+        if (lastSpaceIndex >= 0 && lastSpaceIndex > characterLimit - WORD_BOUNDARY_WINDOW) {
+            end = lastSpaceIndex;
+        }
+        return text.substring(0, end);
+    }
+
+    private void addToRun(char c) {
+        if (runLength == 0) {
+            runFirst = c;
+        } else if (runLength == 1) {
+            runSecond = c;
+        }
+        runLength++;
+    }
+
+    /**
+     * Writes the pending whitespace run before the next visible character
+     */
+    private void writeRun() {
+        if (runLength == 0) {
+            return;
+        }
+        // Leading whitespace of the text is trimmed
+        if (text.length() > 0) {
+            if (runLength >= 3) {
+                text.append("  ");
+            } else {
+                text.append(runFirst);
+                if (runLength == 2) {
+                    text.append(runSecond);
+                }
+            }
+        }
+        runLength = 0;
+    }
+}
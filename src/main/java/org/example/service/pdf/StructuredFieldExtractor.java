@@ -0,0 +1,155 @@
+package org.example.service.pdf;
+
+import org.example.service.PdfProcessorService.PdfProcessingResult;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * StructuredFieldExtractor - Deterministic extraction of VINs, policy numbers and email addresses
+ *
+ * Answers "extract all VINs"-style requests without a model call. All field types are
+ * found by one precompiled pattern (an alternation of named groups) in a single scan
+ * of the extracted text:
+ * - VINs: 17 characters without I, O and Q, containing letters and digits; the ISO 3779
+ *   check digit (position 9) is verified. Candidates failing the check are reported
+ *   separately, since VINs outside North America do not always carry a check digit
+ * - Policy numbers: values following a "Policy number / No. / #" label, and values in
+ *   the POL-123456 format used by our policies
+ * - Email addresses
+ *
+ * Each distinct value is reported once, with the page it first appears on.
+ */
+@Component
+public class StructuredFieldExtractor {
+
+    private static final Pattern FIELD_PATTERN = Pattern.compile(
+        "(?<vin>\\b[A-HJ-NPR-Z0-9]{17}\\b)"
+        + "|(?<email>\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9-]+(?:\\.[A-Za-z0-9-]+)*\\.[A-Za-z]{2,}\\b)"
+        + "|(?i:\\bpolicy\\s*(?:number|num\\.?|no\\.?|#)\\s*[:#]?\\s*)(?<labelledPolicy>[A-Z0-9][A-Z0-9-]{3,24}[A-Z0-9])"
+        + "|(?<policy>\\bPOL-?\\d{4,12}\\b)",
+        Pattern.CASE_INSENSITIVE);
+
+    // ISO 3779 transliteration of A..Z (I, O and Q never occur) and position weights
+    private static final int[] VIN_LETTER_VALUES = {
+        1, 2, 3, 4, 5, 6, 7, 8, 0, 1, 2, 3, 4, 5, 0, 7, 0, 9, 2, 3, 4, 5, 6, 7, 8, 9
+    };
+    private static final int[] VIN_WEIGHTS = {8, 7, 6, 5, 4, 3, 2, 10, 0, 9, 8, 7, 6, 5, 4, 3, 2};
+
+    /**
+     * A field value and the page it was first found on
+     *
+     * @param value The value as it appears in the document (VINs and policy numbers uppercased)
+     * @param pageNumber The 1-based page, or 0 if page positions are unknown
+     */
+    public record Field(String value, int pageNumber) {
+    }
+
+    /**
+     * Fields found in a document, each list in order of first appearance
+     */
+    public record ExtractedFields(
+        List<Field> vins,
+        List<Field> unverifiedVins,
+        List<Field> policyNumbers,
+        List<Field> emailAddresses
+    ) {
+        public boolean isEmpty() {
+            return vins.isEmpty() && unverifiedVins.isEmpty() && policyNumbers.isEmpty() && emailAddresses.isEmpty();
+        }
+    }
+
+    /**
+     * Extracts VINs, policy numbers and email addresses from an extracted document
+     *
+     * @param result The extraction result
+     * @return The fields found
+     */
+    public ExtractedFields extract(PdfProcessingResult result) {
+        return extract(result.getExtractedText(), result::getPageNumberAt);
+    }
+
+    /**
+     * Extracts VINs, policy numbers and email addresses from plain text (e.g. a chat message)
+     *
+     * @param text The text
+     * @return The fields found, all with page number 0
+     */
+    public ExtractedFields extract(String text) {
+        return extract(text, offset -> 0);
+    }
+
+    private ExtractedFields extract(String text, IntUnaryOperator pageNumberAt) {
+        Map<String, Field> vins = new LinkedHashMap<>();
+        Map<String, Field> unverifiedVins = new LinkedHashMap<>();
+        Map<String, Field> policyNumbers = new LinkedHashMap<>();
+        Map<String, Field> emailAddresses = new LinkedHashMap<>();
+
+        Matcher matcher = FIELD_PATTERN.matcher(text);
+        while (matcher.find()) {
+            String value;
+            if ((value = matcher.group("vin")) != null) {
+                value = value.toUpperCase(Locale.ROOT);
+                if (isVinShaped(value)) {
+                    Map<String, Field> target = hasValidCheckDigit(value) ? vins : unverifiedVins;
+                    target.putIfAbsent(value, new Field(value, pageNumberAt.applyAsInt(matcher.start("vin"))));
+                }
+            } else if ((value = matcher.group("email")) != null) {
+                emailAddresses.putIfAbsent(value.toLowerCase(Locale.ROOT),
+                    new Field(value, pageNumberAt.applyAsInt(matcher.start("email"))));
+            } else if ((value = matcher.group("labelledPolicy")) != null) {
+                // Labels are followed by words as well ("Policy number of the insured")
+                if (containsDigit(value)) {
+                    value = value.toUpperCase(Locale.ROOT);
+                    policyNumbers.putIfAbsent(value, new Field(value, pageNumberAt.applyAsInt(matcher.start("labelledPolicy"))));
+                }
+            } else if ((value = matcher.group("policy")) != null) {
+                value = value.toUpperCase(Locale.ROOT);
+                policyNumbers.putIfAbsent(value, new Field(value, pageNumberAt.applyAsInt(matcher.start("policy"))));
+            }
+        }
+
+        return new ExtractedFields(
+            new ArrayList<>(vins.values()),
+            new ArrayList<>(unverifiedVins.values()),
+            new ArrayList<>(policyNumbers.values()),
+            new ArrayList<>(emailAddresses.values())
+        );
+    }
+
+    /**
+     * Checks the ISO 3779 check digit (position 9) of a 17-character VIN
+     *
+     * @param vin The uppercased VIN
+     * @return true if the check digit matches the weighted sum of the other characters
+     */
+    static boolean hasValidCheckDigit(String vin) {
+        int sum = 0;
+        for (int i = 0; i < 17; i++) {
+            char c = vin.charAt(i);
+            int value = c >= '0' && c <= '9' ? c - '0' : VIN_LETTER_VALUES[c - 'A'];
+            sum += value * VIN_WEIGHTS[i];
+        }
+        int remainder = sum % 11;
+        char expected = remainder == 10 ? 'X' : (char) ('0' + remainder);
+        return vin.charAt(8) == expected;
+    }
+
+    /**
+     * Rules out 17-character words and numbers: a VIN mixes letters and digits
+     */
+    private static boolean isVinShaped(String candidate) {
+        return containsDigit(candidate) && candidate.chars().anyMatch(Character::isLetter);
+    }
+
+    private static boolean containsDigit(String value) {
+        return value.chars().anyMatch(Character::isDigit);
+    }
+}
@@ -1,26 +1,47 @@
 package org.example.service.tools;
 
 import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolMemoryId;
 import dev.langchain4j.data.message.ImageContent;
 import dev.langchain4j.data.message.TextContent;
 import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.model.anthropic.AnthropicChatModel;
 import org.example.dto.EmailRequest;
 import org.example.service.EmailService;
 import org.example.service.PdfProcessorService;
+import org.example.service.pdf.DocumentMapReduceAnalyzer;
+import org.example.service.pdf.PassageIndex;
+import org.example.service.pdf.PassageRetriever;
+import org.example.service.pdf.StructuredFieldExtractor;
 import org.example.TechnicalConsultantAgent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.List;        // Add this import
-import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * ChatTools - Tool definitions for Claude AI function calling
@@ -31,14 +52,35 @@ import java.util.ArrayList;
  * 
  * Available tools:
  * - analyze_pdf: PDF document analysis and information extraction
+ * - extract_pdf_fields: Fast extraction of VINs, policy numbers and emails from a PDF (no model call)
  * - analyze_image: Image analysis and visual content examination
  * - send_policy_email: Policy information email sending
+ * 
+ * This is a stateless singleton: per-turn state (uploaded files, executed tool ledger,
+ * deadline) lives in a ToolInvocationContext bound to the conversation's memoryId,
+ * which LangChain4j passes to every tool call through @ToolMemoryId.
+ * 
+ * Uploaded PDFs and images are prepared as soon as a context is opened (text
+ * extraction, base64 encoding), so the work overlaps with the model call that decides
+ * which tool to use; the tools then wait for the prepared result.
+ * 
+ * In raw mode (chat.tools.raw-results.enabled) analyzePdf and analyzeImage do not call
+ * a model themselves: they return the document text (or the passages relevant to the
+ * question) and attach the image, and the conversation model answers in its own turn.
+ * This saves one model round trip per document question, but the returned text is kept
+ * in conversation memory and resent with every later turn of the conversation.
+ * 
+ * Tools are called concurrently when one model response asks for several of them
+ * (ParallelToolExecutor), except sendPolicyEmail; all tools must be thread safe.
  */
 @Component
 public class ChatTools {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatTools.class);
     
+    // Threads encoding uploaded images ahead of analyzeImage calls
+    private static final int IMAGE_PREPARATION_THREADS = 2;
+    
     @Autowired
     private PdfProcessorService pdfProcessorService;
     
@@ -48,19 +90,64 @@ public class ChatTools {
     @Autowired
     private TechnicalConsultantAgent technicalConsultantAgent;
     
+    @Autowired
+    private DocumentMapReduceAnalyzer documentAnalyzer;
+    
+    @Autowired
+    private PassageRetriever passageRetriever;
+    
+    @Autowired
+    private StructuredFieldExtractor fieldExtractor;
+    
     @Autowired
     private AnthropicChatModel claudeModel;
     
-    // File cache for conversation-scoped file access
-    private Map<String, MultipartFile> fileCache = new ConcurrentHashMap<>();
+    @Value("${chat.tools.prepare-uploads:true}")
+    private boolean prepareUploads;
+    
+    @Value("${chat.tools.raw-results.enabled:false}")
+    private boolean rawResults;
+    
+    @Value("${chat.tools.raw-results.max-characters:40000}")
+    private int rawResultsMaxCharacters;
+    
+    // Request-scoped tool contexts keyed by conversationId (the agent's memoryId)
+    private final Map<String, ToolInvocationContext> activeContexts = new ConcurrentHashMap<>();
+    
+    private ThreadPoolExecutor imagePreparationExecutor;
     
-    // Tool execution tracking for current conversation
-    private final ThreadLocal<List<String>> executedTools = new ThreadLocal<List<String>>() {
-        @Override
-        protected List<String> initialValue() {
-            return new ArrayList<>();
+    /**
+     * Creates the pool encoding uploaded images in the background
+     */
+    @PostConstruct
+    public void init() {
+        if (!prepareUploads) {
+            logger.info("Background preparation of uploaded files disabled");
+            return;
         }
-    };
+        
+        AtomicInteger threadCounter = new AtomicInteger();
+        imagePreparationExecutor = new ThreadPoolExecutor(
+            IMAGE_PREPARATION_THREADS, IMAGE_PREPARATION_THREADS,
+            60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(64),
+            runnable -> {
+                Thread thread = new Thread(runnable, "upload-prepare-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        imagePreparationExecutor.allowCoreThreadTimeOut(true);
+    }
+    
+    /**
+     * Shuts down the image preparation pool
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (imagePreparationExecutor != null) {
+            imagePreparationExecutor.shutdownNow();
+        }
+    }
 
     /**
      * Tool for analyzing PDF documents and extracting information
@@ -68,28 +155,81 @@ public class ChatTools {
      * This tool can analyze PDF files and extract specific information based on
      * user requests like VIN numbers, contact information, financial data, etc.
      * 
+     * Documents too long for a single prompt are analyzed in parts (map-reduce), so
+     * the answer covers the whole document rather than its first pages. Questions about
+     * long documents are answered from the most relevant passages only.
+     * 
+     * @param conversationId Conversation the call belongs to (injected memoryId, not visible to Claude)
      * @param filePath Path to the PDF file (provided by file upload)
      * @param prompt Optional custom prompt for specific analysis (default: general recap)
      * @return Mock response indicating what analysis would be performed
      */
     @Tool("Analyzes PDF documents and extracts information or answers specific questions about the content")
-    public String analyzePdf(String filePath, String prompt) {
-        logger.info("Processing PDF analysis request - file: {}, prompt: '{}'", filePath, prompt);
+    public String analyzePdf(@ToolMemoryId String conversationId, String filePath, String prompt) {
+        logger.info("Processing PDF analysis request - conversation: {}, file: {}, prompt: '{}'", 
+                   conversationId, filePath, prompt);
+        
+        ToolInvocationContext context = getContext(conversationId);
+        if (context == null) {
+            return String.format("Sorry, I couldn't access the PDF file at '%s'. Please ensure the file was uploaded correctly.", filePath);
+        }
         
         // Track tool execution
-        executedTools.get().add("analyze_pdf");
+        context.recordToolExecution("analyze_pdf");
+        
+        if (context.isDeadlineExceeded()) {
+            logger.warn("Skipping PDF analysis - request deadline exceeded for conversation: {}", conversationId);
+            return "Sorry, this request ran out of time before the PDF could be analyzed. Please try again.";
+        }
         
         try {
-            // Get the actual file from cache
-            MultipartFile pdfFile = getFileFromPath(filePath);
+            // Get the actual file from the turn's uploads
+            MultipartFile pdfFile = getFileFromPath(context, filePath);
             
             // Extract text using existing PDF processor service
-            PdfProcessorService.PdfProcessingResult processingResult = 
-                pdfProcessorService.extractTextFromPdf(pdfFile);
+            PdfProcessorService.PdfProcessingResult processingResult = extractForAnalysis(context, filePath, pdfFile);
+            if (processingResult.isPartial() && processingResult.getPagesRead() == 0) {
+                return String.format("Sorry, the PDF '%s' could not be read within the processing time limit. " +
+                                   "It may be unusually complex - please try a smaller or simplified version.", 
+                                   pdfFile.getOriginalFilename());
+            }
                 
             // Use TechnicalConsultantAgent for AI-powered analysis
             String analysis;
-            if (prompt != null && !prompt.trim().isEmpty()) {
+            String partsLine = "";
+            boolean hasPrompt = prompt != null && !prompt.trim().isEmpty();
+            List<PassageIndex.Passage> passages = hasPrompt && passageRetriever.isApplicable(processingResult)
+                ? passageRetriever.retrieve(conversationId, filePath, processingResult, prompt)
+                : List.of();
+            
+            if (rawResults) {
+                String rawResult = formatRawPdfResult(pdfFile, processingResult, passages);
+                if (rawResult != null) {
+                    logger.info("Returning {} of {} to the conversation model (raw mode)", 
+                               passages.isEmpty() ? "text" : passages.size() + " passages", pdfFile.getOriginalFilename());
+                    return rawResult;
+                }
+                // Too long to hand over without passages selected for a narrow question: analyze here
+            }
+            
+            if (!passages.isEmpty()) {
+                logger.debug("Answering PDF question from {} retrieved passages: {}", passages.size(), prompt);
+                analysis = technicalConsultantAgent.answerFromPassages(prompt, PassageRetriever.render(passages));
+                partsLine = String.format("- Answered from %d relevant passages (pages %s)\n", passages.size(),
+                    passages.stream().map(passage -> String.valueOf(passage.pageNumber())).distinct()
+                        .collect(Collectors.joining(", ")));
+            } else if (documentAnalyzer.isEnabled()) {
+                logger.debug("Analyzing PDF with {}", hasPrompt ? "custom prompt: " + prompt : "standard recap");
+                DocumentMapReduceAnalyzer.Analysis result = documentAnalyzer.analyze(
+                    processingResult.getExtractedText(), prompt, context.getDeadline());
+                analysis = result.text();
+                if (result.partCount() > 1) {
+                    partsLine = result.missingParts().isEmpty()
+                        ? String.format("- Analyzed in %d parts\n", result.partCount())
+                        : String.format("- Analyzed in %d parts (parts %s could not be analyzed)\n", 
+                            result.partCount(), result.missingParts());
+                }
+            } else if (hasPrompt) {
                 logger.debug("Using custom prompt for PDF analysis: {}", prompt);
                 analysis = technicalConsultantAgent.analyzeWithCustomPrompt(prompt, 
                     processingResult.getExtractedText());
@@ -104,12 +244,16 @@ public class ChatTools {
                 "Document Details:\n" +
                 "- File: %s\n" +
                 "- Pages: %d\n" +
+                "%s" +
                 "- Characters extracted: %d\n" +
+                "%s" +
                 "- Analysis completed successfully",
                 analysis,
                 pdfFile.getOriginalFilename(),
                 processingResult.getPageCount(),
-                processingResult.getFinalCharacterCount()
+                describePagesRead(processingResult, "analyzed"),
+                processingResult.getFinalCharacterCount(),
+                partsLine
             );
             
             logger.info("PDF analysis completed successfully - file: {}, pages: {}, chars: {}", 
@@ -122,16 +266,250 @@ public class ChatTools {
             logger.error("File access failed for PDF analysis: {}", filePath, e);
             return String.format("Sorry, I couldn't access the PDF file at '%s'. Please ensure the file was uploaded correctly.", filePath);
             
+        } catch (PdfProcessorService.PdfBusyException e) {
+            logger.warn("PDF processing rejected for file: {} - extraction workers busy", filePath);
+            return "Sorry, the server is busy processing other documents right now. Please try again in a moment.";
+            
         } catch (PdfProcessorService.PdfProcessingException e) {
             logger.error("PDF processing failed for file: {}", filePath, e);
             return String.format("Sorry, I encountered an error processing the PDF: %s. The file might be corrupted, password-protected, or in an unsupported format.", e.getMessage());
             
+        } catch (DocumentMapReduceAnalyzer.DocumentAnalysisException e) {
+            logger.error("PDF analysis failed for file: {}", filePath, e);
+            return "Sorry, this document is very long and could not be analyzed in time. Please try again or ask about a specific part of it.";
+            
         } catch (Exception e) {
             logger.error("Unexpected error during PDF analysis: {}", filePath, e);
             return String.format("Sorry, I encountered an unexpected error analyzing the PDF: %s", e.getMessage());
         }
     }
     
+    /**
+     * Tool for extracting VINs, policy numbers and email addresses from PDF documents
+     * 
+     * Deterministic fast path for the most common PDF request: the fields are found by
+     * pattern matching (VIN check digits verified) without a secondary model call, so
+     * the tool answers in milliseconds once the text is extracted (or cached).
+     * 
+     * @param conversationId Conversation the call belongs to (injected memoryId, not visible to Claude)
+     * @param filePath Path to the PDF file (provided by file upload)
+     * @return The VINs, policy numbers and email addresses found, with their pages
+     */
+    @Tool("Extracts all VIN numbers, policy numbers and email addresses from a PDF document. Much faster than analyzePdf - use it whenever the user only asks for these identifiers")
+    public String extractPdfFields(@ToolMemoryId String conversationId, String filePath) {
+        logger.info("Processing PDF field extraction request - conversation: {}, file: {}", conversationId, filePath);
+        
+        ToolInvocationContext context = getContext(conversationId);
+        if (context == null) {
+            return String.format("Sorry, I couldn't access the PDF file at '%s'. Please ensure the file was uploaded correctly.", filePath);
+        }
+        
+        // Track tool execution
+        context.recordToolExecution("extract_pdf_fields");
+        
+        if (context.isDeadlineExceeded()) {
+            logger.warn("Skipping PDF field extraction - request deadline exceeded for conversation: {}", conversationId);
+            return "Sorry, this request ran out of time before the PDF could be read. Please try again.";
+        }
+        
+        try {
+            MultipartFile pdfFile = getFileFromPath(context, filePath);
+            PdfProcessorService.PdfProcessingResult processingResult = extractForAnalysis(context, filePath, pdfFile);
+            if (processingResult.isPartial() && processingResult.getPagesRead() == 0) {
+                return String.format("Sorry, the PDF '%s' could not be read within the processing time limit. " +
+                                   "It may be unusually complex - please try a smaller or simplified version.", 
+                                   pdfFile.getOriginalFilename());
+            }
+            
+            long startTime = System.nanoTime();
+            StructuredFieldExtractor.ExtractedFields fields = fieldExtractor.extract(processingResult);
+            long extractionMicros = (System.nanoTime() - startTime) / 1000;
+            
+            StringBuilder response = new StringBuilder("PDF Field Extraction Results:\n");
+            if (fields.isEmpty()) {
+                response.append("No VIN numbers, policy numbers or email addresses were found in the document.\n");
+            } else {
+                appendFields(response, "VIN numbers (check digit valid)", fields.vins());
+                appendFields(response, "Possible VIN numbers (check digit not valid - may be non-North-American VINs or typos)", 
+                    fields.unverifiedVins());
+                appendFields(response, "Policy numbers", fields.policyNumbers());
+                appendFields(response, "Email addresses", fields.emailAddresses());
+            }
+            response.append(String.format(
+                "\nDocument Details:\n" +
+                "- File: %s\n" +
+                "- Pages: %d\n" +
+                "%s" +
+                "- Characters scanned: %d\n" +
+                "- Extraction completed successfully",
+                pdfFile.getOriginalFilename(),
+                processingResult.getPageCount(),
+                describePagesRead(processingResult, "scanned"),
+                processingResult.getFinalCharacterCount()
+            ));
+            
+            logger.info("PDF field extraction completed - file: {}, VINs: {} (+{} unverified), policy numbers: {}, emails: {}, scan: {}us", 
+                       pdfFile.getOriginalFilename(), fields.vins().size(), fields.unverifiedVins().size(), 
+                       fields.policyNumbers().size(), fields.emailAddresses().size(), extractionMicros);
+            
+            return response.toString();
+            
+        } catch (FileAccessException e) {
+            logger.error("File access failed for PDF field extraction: {}", filePath, e);
+            return String.format("Sorry, I couldn't access the PDF file at '%s'. Please ensure the file was uploaded correctly.", filePath);
+            
+        } catch (PdfProcessorService.PdfBusyException e) {
+            logger.warn("PDF processing rejected for file: {} - extraction workers busy", filePath);
+            return "Sorry, the server is busy processing other documents right now. Please try again in a moment.";
+            
+        } catch (PdfProcessorService.PdfProcessingException e) {
+            logger.error("PDF processing failed for file: {}", filePath, e);
+            return String.format("Sorry, I encountered an error processing the PDF: %s. The file might be corrupted, password-protected, or in an unsupported format.", e.getMessage());
+            
+        } catch (Exception e) {
+            logger.error("Unexpected error during PDF field extraction: {}", filePath, e);
+            return String.format("Sorry, I encountered an unexpected error reading the PDF: %s", e.getMessage());
+        }
+    }
+    
+    /**
+     * Extracts the text of a PDF for the analysis tools
+     * 
+     * Waits for the extraction started when the file was uploaded, if there is one;
+     * otherwise (or if that extraction was rejected as busy) extracts now.
+     */
+    private PdfProcessorService.PdfProcessingResult extractForAnalysis(ToolInvocationContext context, String filePath,
+                                                                       MultipartFile pdfFile) 
+            throws PdfProcessorService.PdfProcessingException {
+        CompletableFuture<PdfProcessorService.PdfProcessingResult> extraction = context.getPdfExtraction(filePath);
+        if (extraction != null) {
+            long remainingMs = Math.max(0, Duration.between(Instant.now(), context.getDeadline()).toMillis());
+            try {
+                return extraction.get(remainingMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw new PdfProcessorService.PdfProcessingException("PDF text extraction did not finish in time");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PdfProcessorService.PdfProcessingException("PDF processing was interrupted", e);
+            } catch (CancellationException e) {
+                logger.debug("Background extraction of {} was cancelled - extracting now", filePath);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof PdfProcessorService.PdfBusyException) {
+                    logger.debug("Background extraction of {} was rejected - extracting now", filePath);
+                } else if (cause instanceof PdfProcessorService.PdfProcessingException processingException) {
+                    throw processingException;
+                } else if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                } else {
+                    throw new PdfProcessorService.PdfProcessingException(
+                        "Failed to extract text from PDF: " + cause.getMessage(), cause);
+                }
+            }
+        }
+        return pdfProcessorService.extractTextFromPdf(pdfFile, getAnalysisCharacterLimit());
+    }
+    
+    /**
+     * Gets the extracted text of a PDF uploaded with the turn
+     * 
+     * Uses the same (usually already running) extraction as the PDF tools, so inlining a
+     * document into the user's message and a later tool call never extract it twice.
+     * 
+     * @param context The tool context of the current turn
+     * @param filePath The standardized file path
+     * @return The extraction result
+     * @throws FileAccessException if the file was not uploaded with the turn
+     * @throws PdfProcessorService.PdfProcessingException if extraction fails
+     */
+    public PdfProcessorService.PdfProcessingResult extractUploadedPdf(ToolInvocationContext context, String filePath) 
+            throws FileAccessException, PdfProcessorService.PdfProcessingException {
+        return extractForAnalysis(context, filePath, getFileFromPath(context, filePath));
+    }
+    
+    /**
+     * Gets the character limit of extractions for the analysis tools
+     * 
+     * The larger map-reduce limit applies when it is enabled. All analysis tools and the
+     * upload preparation use the same limit, so they share one cached extraction.
+     */
+    private int getAnalysisCharacterLimit() {
+        return documentAnalyzer.isEnabled() 
+            ? documentAnalyzer.getMaxCharacters() 
+            : PdfProcessorService.DEFAULT_CHARACTER_LIMIT;
+    }
+    
+    /**
+     * Formats the document content returned to the conversation model in raw mode
+     * 
+     * @return The tool result, or null if there are no passages and the text is longer
+     *         than rawResultsMaxCharacters
+     */
+    private String formatRawPdfResult(MultipartFile pdfFile, PdfProcessorService.PdfProcessingResult processingResult, 
+                                      List<PassageIndex.Passage> passages) {
+        String content;
+        String contentLine;
+        if (!passages.isEmpty()) {
+            content = PassageRetriever.render(passages);
+            contentLine = String.format("- Content: the %d passages most relevant to the question (pages %s)\n", 
+                passages.size(), passages.stream().map(passage -> String.valueOf(passage.pageNumber())).distinct()
+                    .collect(Collectors.joining(", ")));
+        } else if (processingResult.getExtractedText().length() <= rawResultsMaxCharacters) {
+            content = processingResult.getExtractedText();
+            contentLine = "- Content: full extracted text\n";
+        } else {
+            return null;
+        }
+        
+        return String.format(
+            "PDF Content (answer the user's request from it directly):\n%s\n\n" +
+            "Document Details:\n" +
+            "- File: %s\n" +
+            "- Pages: %d\n" +
+            "%s" +
+            "%s" +
+            "- Characters extracted: %d",
+            content,
+            pdfFile.getOriginalFilename(),
+            processingResult.getPageCount(),
+            describePagesRead(processingResult, "read"),
+            contentLine,
+            processingResult.getFinalCharacterCount()
+        );
+    }
+    
+    /**
+     * Describes which pages of a document were read, when extraction stopped before the end
+     * 
+     * @return A response line, or an empty string if the whole document was read
+     */
+    private static String describePagesRead(PdfProcessorService.PdfProcessingResult result, String verb) {
+        if (result.getPagesRead() >= result.getPageCount()) {
+            return "";
+        }
+        String reason = switch (result.getStopReason()) {
+            case PAGE_LIMIT -> "page limit reached - later pages were not read";
+            case TIMEOUT -> "processing time limit reached - later pages were not read";
+            default -> "text limit reached";
+        };
+        return String.format("- Pages %s: first %d (%s)\n", verb, result.getPagesRead(), reason);
+    }
+    
+    private static void appendFields(StringBuilder response, String label, 
+                                     List<StructuredFieldExtractor.Field> fields) {
+        if (fields.isEmpty()) {
+            return;
+        }
+        response.append("- ").append(label).append(":\n");
+        for (StructuredFieldExtractor.Field field : fields) {
+            response.append("  - ").append(field.value());
+            if (field.pageNumber() > 0) {
+                response.append(" (page ").append(field.pageNumber()).append(")");
+            }
+            response.append("\n");
+        }
+    }
+    
 
 
     /**
@@ -140,31 +518,54 @@ public class ChatTools {
      * This tool can analyze images and extract information like text, objects,
      * VIN numbers, damage assessment, or answer specific questions about visual content.
      * 
+     * @param conversationId Conversation the call belongs to (injected memoryId, not visible to Claude)
      * @param filePath Path to the image file (provided by file upload)
      * @param prompt Optional custom prompt for specific analysis (default: general description)
      * @return Mock response indicating what image analysis would be performed
      */
     @Tool("Analyzes images and extracts information or answers specific questions about visual content")
-    public String analyzeImage(String filePath, String prompt) {
-        logger.info("Processing image analysis request - file: {}, prompt: '{}'", filePath, prompt);
+    public String analyzeImage(@ToolMemoryId String conversationId, String filePath, String prompt) {
+        logger.info("Processing image analysis request - conversation: {}, file: {}, prompt: '{}'", 
+                   conversationId, filePath, prompt);
+        
+        ToolInvocationContext context = getContext(conversationId);
+        if (context == null) {
+            return String.format("Sorry, I couldn't access the image file at '%s'. Please ensure the file was uploaded correctly.", filePath);
+        }
         
         // Track tool execution
-        executedTools.get().add("analyze_image");
+        context.recordToolExecution("analyze_image");
+        
+        if (context.isDeadlineExceeded()) {
+            logger.warn("Skipping image analysis - request deadline exceeded for conversation: {}", conversationId);
+            return "Sorry, this request ran out of time before the image could be analyzed. Please try again.";
+        }
         
         try {
-            // Get the actual file from cache
-            MultipartFile imageFile = getFileFromPath(filePath);
+            // Get the actual file from the turn's uploads
+            MultipartFile imageFile = getFileFromPath(context, filePath);
             
-            // Get image bytes and MIME type
-            byte[] imageBytes = imageFile.getBytes();
+            // Get base64 image data (usually prepared at upload) and MIME type
+            String imageData = getImageData(context, filePath, imageFile);
             String mimeType = imageFile.getContentType();
             
+            if (rawResults) {
+                // The conversation model looks at the image itself, right after this result
+                context.attachImage(imageFile.getOriginalFilename(), ImageContent.from(imageData, mimeType));
+                logger.info("Attached image {} for the conversation model (raw mode)", imageFile.getOriginalFilename());
+                return String.format(
+                    "Image attached: %s (%s, %d bytes) follows these tool results. " +
+                    "Look at it and answer the user's request directly%s.",
+                    imageFile.getOriginalFilename(), mimeType, imageFile.getSize(),
+                    prompt != null && !prompt.trim().isEmpty() ? " - focus: " + prompt : "");
+            }
+            
             // Create UserMessage with both text and image content
             UserMessage visionMessage = UserMessage.from(
                 TextContent.from(prompt != null && !prompt.trim().isEmpty() 
                     ? prompt 
                     : "Please describe what you see in this image in detail."),
-                ImageContent.from(Base64.getEncoder().encodeToString(imageBytes), mimeType)
+                ImageContent.from(imageData, mimeType)
             );
             
             // Call Claude directly with the vision message
@@ -210,6 +611,7 @@ public class ChatTools {
      * This tool sends formatted HTML emails containing customer policy information
      * via AWS SES integration. All parameters are required for proper email delivery.
      * 
+     * @param conversationId Conversation the call belongs to (injected memoryId, not visible to Claude)
      * @param emailAddress Recipient's email address
      * @param firstName Customer's first name
      * @param lastName Customer's last name
@@ -218,14 +620,17 @@ public class ChatTools {
      * @return Mock response indicating what email would be sent
      */
     @Tool("Sends policy information emails to customers with their policy and vehicle details")
-    public String sendPolicyEmail(String emailAddress, String firstName, String lastName, 
-                                  String policyNumber, String vin) {
+    public String sendPolicyEmail(@ToolMemoryId String conversationId, String emailAddress, String firstName, 
+                                  String lastName, String policyNumber, String vin) {
         
-        logger.info("Processing policy email send request - recipient: {}, policy: {}, VIN: {}", 
-                   emailAddress, policyNumber, vin);
+        logger.info("Processing policy email send request - conversation: {}, recipient: {}, policy: {}, VIN: {}", 
+                   conversationId, emailAddress, policyNumber, vin);
         
         // Track tool execution
-        executedTools.get().add("send_policy_email");
+        ToolInvocationContext context = getContext(conversationId);
+        if (context != null) {
+            context.recordToolExecution("send_policy_email");
+        }
         
         try {
             // Create EmailRequest DTO using the existing record structure
@@ -273,39 +678,143 @@ public class ChatTools {
     }
     
     /**
-     * Sets the file cache for this conversation (called from ClaudeService)
+     * Binds a tool context for a conversation turn (called from ClaudeService)
+     * 
+     * Preparation of the uploaded files starts right away, before the model is called.
+     * 
+     * @param conversationId The conversation ID used as the agent memoryId
+     * @param files Map of standardized file paths to MultipartFile objects
+     * @param timeBudget Time after which tools should stop starting new work
+     * @return The bound context, to be passed to {@link #closeContext} when the turn ends
+     */
+    public ToolInvocationContext openContext(String conversationId, Map<String, MultipartFile> files, 
+                                             Duration timeBudget) {
+        ToolInvocationContext context = new ToolInvocationContext(conversationId, files, timeBudget);
+        ToolInvocationContext previous = activeContexts.put(conversationId, context);
+        if (previous != null) {
+            logger.warn("Replacing active tool context for conversation: {} (concurrent turn)", conversationId);
+        }
+        if (prepareUploads) {
+            prepareUploads(context);
+        }
+        return context;
+    }
+    
+    /**
+     * Unbinds a tool context once its turn has finished
+     * 
+     * Only removes the mapping if it still points to this context, so a newer turn
+     * on the same conversation is never unbound by an older one. Upload preparations
+     * still queued are cancelled.
+     * 
+     * @param context The context returned by {@link #openContext}
+     */
+    public void closeContext(ToolInvocationContext context) {
+        activeContexts.remove(context.getConversationId(), context);
+        context.cancelPreparations();
+    }
+    
+    /**
+     * Gets the tool mode, for comparing the latency and token cost of both modes
+     * 
+     * @return "raw" when tools return content to the conversation model, "nested" when they call a model themselves
+     */
+    public String getToolMode() {
+        return rawResults ? "raw" : "nested";
+    }
+    
+    /**
+     * Wraps a conversation memory so that images attached by tools in raw mode reach the model
      * 
-     * @param fileCache Map of file paths to MultipartFile objects
+     * @param memory The conversation memory
+     * @return A view of the memory that appends the current turn's attached images after tool results
      */
-    public void setFileCache(Map<String, MultipartFile> fileCache) {
-        this.fileCache = fileCache;
+    public ChatMemory withToolAttachments(ChatMemory memory) {
+        return new ToolAttachmentChatMemory(memory, memoryId -> {
+            ToolInvocationContext context = activeContexts.get(memoryId.toString());
+            return context != null ? context.getAttachments() : Map.of();
+        });
     }
     
     /**
-     * Gets the list of tools executed in the current thread/conversation
+     * Starts preparing the uploads of a turn in the background
      * 
-     * @return List of tool names that were executed
+     * PDFs are extracted on the PDF worker pool, images are base64 encoded. Preparations
+     * that cannot be started (pools busy) are skipped; the tools then do the work
+     * themselves.
      */
-    public List<String> getExecutedTools() {
-        return new ArrayList<>(executedTools.get());
+    private void prepareUploads(ToolInvocationContext context) {
+        for (Map.Entry<String, MultipartFile> upload : context.getFiles().entrySet()) {
+            String filePath = upload.getKey();
+            MultipartFile file = upload.getValue();
+            String contentType = file.getContentType();
+            
+            if (contentType != null && contentType.startsWith("application/pdf")) {
+                context.putPdfExtraction(filePath, 
+                    pdfProcessorService.extractTextFromPdfAsync(file, getAnalysisCharacterLimit()));
+                logger.debug("Started background extraction of {}", filePath);
+            } else if (contentType != null && contentType.startsWith("image/")) {
+                try {
+                    context.putImageData(filePath, CompletableFuture.supplyAsync(() -> encodeImage(file), 
+                        imagePreparationExecutor));
+                } catch (RejectedExecutionException e) {
+                    logger.debug("Skipping background encoding of {} - preparation pool busy", filePath);
+                }
+            }
+        }
     }
     
     /**
-     * Clears the executed tools list for the current thread (called at start of new requests)
+     * Gets the base64 data of an uploaded image, waiting for its background encoding if there is one
      */
-    public void clearExecutedTools() {
-        executedTools.get().clear();
+    private String getImageData(ToolInvocationContext context, String filePath, MultipartFile imageFile) 
+            throws IOException {
+        CompletableFuture<String> encoding = context.getImageData(filePath);
+        if (encoding != null) {
+            try {
+                return encoding.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading the image", e);
+            } catch (ExecutionException | CancellationException e) {
+                logger.debug("Background encoding of {} unavailable - encoding now", filePath);
+            }
+        }
+        return Base64.getEncoder().encodeToString(imageFile.getBytes());
+    }
+    
+    private static String encodeImage(MultipartFile file) {
+        try {
+            return Base64.getEncoder().encodeToString(file.getBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Looks up the tool context bound to a conversation
+     * 
+     * @param conversationId The memoryId passed to the tool call
+     * @return The bound context, or null if no turn is active for the conversation
+     */
+    private ToolInvocationContext getContext(String conversationId) {
+        ToolInvocationContext context = conversationId != null ? activeContexts.get(conversationId) : null;
+        if (context == null) {
+            logger.warn("No active tool context for conversation: {}", conversationId);
+        }
+        return context;
     }
     
     /**
-     * Retrieves a file from the cache using the standardized file path
+     * Retrieves a file from the turn's uploads using the standardized file path
      * 
+     * @param context The tool context of the current turn
      * @param filePath The standardized file path (format: /uploaded/{conversationId}/{filename})
      * @return MultipartFile object for the specified path
-     * @throws FileAccessException if file is not found in cache
+     * @throws FileAccessException if file is not found in the context
      */
-    private MultipartFile getFileFromPath(String filePath) throws FileAccessException {
-        MultipartFile file = fileCache.get(filePath);
+    private MultipartFile getFileFromPath(ToolInvocationContext context, String filePath) throws FileAccessException {
+        MultipartFile file = context.getFile(filePath);
         if (file == null) {
             throw new FileAccessException("File not found in cache: " + filePath);
         }
@@ -319,7 +828,8 @@ public class ChatTools {
      * @return String describing all available tools
      */
     public String getAvailableToolsSummary() {
-        return "Available tools: analyzePdf (PDF document analysis), analyzeImage (image analysis), " +
+        return "Available tools: analyzePdf (PDF document analysis), " +
+               "extractPdfFields (VIN, policy number and email extraction from PDFs), analyzeImage (image analysis), " +
                "sendPolicyEmail (policy information emails)";
     }
     
@@ -0,0 +1,244 @@
+package org.example.service.tools;
+
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.service.ModelUsageTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ParallelToolExecutor - Runs the independent tool calls of one model response concurrently
+ *
+ * LangChain4j executes the tool calls of a response one after another, in request order,
+ * adding each result to the conversation memory as it completes. When a response asks
+ * for several read-only tools (e.g. analyzePdf on three uploads), this executor starts
+ * them all on a bounded pool as soon as the response is added to the memory; the
+ * LangChain4j loop then picks up the already-running results in its usual order, so
+ * results are stored in the memory in request order as before.
+ *
+ * Only tools listed as parallel-safe are started early. All other tools (anything with
+ * side effects, such as sendPolicyEmail) run on the loop thread when the loop reaches
+ * them, exactly as without this executor. The first parallel-safe call of a response
+ * also runs on the loop thread, which would otherwise only wait.
+ */
+@Component
+public class ParallelToolExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelToolExecutor.class);
+
+    @Autowired
+    private ModelUsageTracker modelUsageTracker;
+
+    @Value("${chat.tools.parallel.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.tools.parallel.threads:8}")
+    private int threads;
+
+    @Value("${chat.tools.parallel.safe-tools:analyzePdf,extractPdfFields,analyzeImage}")
+    private String[] parallelSafeToolNames;
+
+    private Set<String> parallelSafeTools;
+    private ThreadPoolExecutor toolExecutor;
+
+    // Tool executors by tool name, as registered with the chat agent
+    private final Map<String, ToolExecutor> directExecutors = new ConcurrentHashMap<>();
+
+    // Tool calls started ahead of the loop: memory ID -> tool execution request ID -> result
+    private final Map<String, Map<String, CompletableFuture<String>>> startedCalls = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the pool running tool calls ahead of the loop
+     */
+    @PostConstruct
+    public void init() {
+        parallelSafeTools = Set.of(parallelSafeToolNames);
+        if (!enabled) {
+            logger.info("Parallel tool execution disabled");
+            return;
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        toolExecutor = new ThreadPoolExecutor(
+            threads, threads,
+            60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(threads * 8),
+            runnable -> {
+                Thread thread = new Thread(runnable, "tool-exec-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        toolExecutor.allowCoreThreadTimeOut(true);
+
+        logger.info("Parallel tool execution enabled - {} threads, parallel-safe tools: {}", threads, parallelSafeTools);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Creates the tool executors of a tools object for the chat agent
+     *
+     * @param tools Object with @Tool methods
+     * @return Tool specifications and executors that pick up calls started ahead of the loop
+     */
+    public Map<ToolSpecification, ToolExecutor> toolExecutors(Object tools) {
+        Map<ToolSpecification, ToolExecutor> executors = new LinkedHashMap<>();
+        for (Method method : tools.getClass().getDeclaredMethods()) {
+            if (!method.isAnnotationPresent(Tool.class)) {
+                continue;
+            }
+            ToolSpecification specification = ToolSpecifications.toolSpecificationFrom(method);
+            ToolExecutor direct = new DefaultToolExecutor(tools, method);
+            directExecutors.put(specification.name(), direct);
+            executors.put(specification, (request, memoryId) -> execute(direct, request, memoryId));
+        }
+        return executors;
+    }
+
+    /**
+     * Wraps a conversation memory so that tool calls start as soon as the model's response is stored
+     *
+     * @param memory The conversation memory
+     * @return The memory, observed for responses with several tool calls
+     */
+    public ChatMemory observe(ChatMemory memory) {
+        if (!enabled) {
+            return memory;
+        }
+        return new ChatMemory() {
+            @Override
+            public Object id() {
+                return memory.id();
+            }
+
+            @Override
+            public void add(ChatMessage message) {
+                memory.add(message);
+                if (message instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+                    startCalls(memory.id(), aiMessage.toolExecutionRequests());
+                }
+            }
+
+            @Override
+            public List<ChatMessage> messages() {
+                return memory.messages();
+            }
+
+            @Override
+            public void clear() {
+                memory.clear();
+            }
+        };
+    }
+
+    /**
+     * Discards the calls started for a conversation that the loop did not pick up (e.g. after a failure)
+     *
+     * @param memoryId The conversation ID
+     */
+    public void endTurn(Object memoryId) {
+        Map<String, CompletableFuture<String>> calls = startedCalls.remove(memoryId.toString());
+        if (calls != null) {
+            calls.values().forEach(call -> call.cancel(false));
+        }
+    }
+
+    /**
+     * Starts the parallel-safe calls of a response, except the first, on the pool
+     */
+    private void startCalls(Object memoryId, List<ToolExecutionRequest> requests) {
+        List<ToolExecutionRequest> candidates = new ArrayList<>();
+        for (ToolExecutionRequest request : requests) {
+            if (request.id() != null && parallelSafeTools.contains(request.name())
+                    && directExecutors.containsKey(request.name())) {
+                candidates.add(request);
+            }
+        }
+
+        endTurn(memoryId);
+        if (candidates.size() < 2) {
+            return;
+        }
+
+        Map<String, CompletableFuture<String>> calls = new ConcurrentHashMap<>();
+        for (ToolExecutionRequest request : candidates.subList(1, candidates.size())) {
+            ToolExecutor direct = directExecutors.get(request.name());
+            try {
+                calls.put(request.id(), CompletableFuture.supplyAsync(
+                    modelUsageTracker.propagate(() -> direct.execute(request, memoryId)), toolExecutor));
+            } catch (RejectedExecutionException e) {
+                logger.debug("Tool pool saturated - remaining calls run in order");
+                break;
+            }
+        }
+        startedCalls.put(memoryId.toString(), calls);
+        logger.debug("Started {} of {} tool calls in parallel for conversation: {}", 
+                    calls.size(), requests.size(), memoryId);
+    }
+
+    /**
+     * Returns the result of a call started ahead of the loop, or executes the call now
+     */
+    private String execute(ToolExecutor direct, ToolExecutionRequest request, Object memoryId) {
+        Map<String, CompletableFuture<String>> calls = request.id() != null ? startedCalls.get(memoryId.toString()) : null;
+        CompletableFuture<String> started = calls != null ? calls.remove(request.id()) : null;
+        if (started == null) {
+            return direct.execute(request, memoryId);
+        }
+
+        try {
+            return started.get();
+        } catch (InterruptedException e) {
+            started.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for tool " + request.name(), e);
+        } catch (CancellationException e) {
+            return direct.execute(request, memoryId);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Tool " + request.name() + " failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Shuts down the tool pool
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (toolExecutor != null) {
+            toolExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.service.tools;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * ToolAttachmentChatMemory - Chat memory view that shows images attached by tools to the model
+ *
+ * Tool results are text only, so a tool running in raw mode (analyzeImage) cannot hand an
+ * image to the conversation model through its result. Instead it attaches the image to
+ * the turn's tool context, and this view appends the attached images, as a user message,
+ * to the messages sent to the model right after the tool results.
+ *
+ * The images are never stored in the conversation memory: they are only visible while
+ * the turn that attached them is running.
+ */
+public class ToolAttachmentChatMemory implements ChatMemory {
+
+    private final ChatMemory delegate;
+    private final Function<Object, Map<String, ImageContent>> attachments;
+
+    /**
+     * @param delegate The conversation memory
+     * @param attachments Looks up the images attached during the current turn of a memory ID, by file name
+     */
+    public ToolAttachmentChatMemory(ChatMemory delegate, Function<Object, Map<String, ImageContent>> attachments) {
+        this.delegate = delegate;
+        this.attachments = attachments;
+    }
+
+    @Override
+    public Object id() {
+        return delegate.id();
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        delegate.add(message);
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        List<ChatMessage> messages = delegate.messages();
+        if (messages.isEmpty() || !(messages.get(messages.size() - 1) instanceof ToolExecutionResultMessage)) {
+            return messages;
+        }
+        Map<String, ImageContent> images = attachments.apply(delegate.id());
+        if (images.isEmpty()) {
+            return messages;
+        }
+
+        List<Content> contents = new ArrayList<>();
+        contents.add(TextContent.from("Images attached by analyzeImage:"));
+        images.forEach((fileName, image) -> {
+            contents.add(TextContent.from("Image: " + fileName));
+            contents.add(image);
+        });
+
+        List<ChatMessage> withAttachments = new ArrayList<>(messages);
+        withAttachments.add(UserMessage.from(contents));
+        return withAttachments;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+}
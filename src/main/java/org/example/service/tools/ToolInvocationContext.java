@@ -0,0 +1,168 @@
+package org.example.service.tools;
+
+import dev.langchain4j.data.message.ImageContent;
+import org.example.service.PdfProcessorService.PdfProcessingResult;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * ToolInvocationContext - Request-scoped state for tool calls of one chat turn
+ *
+ * One context is bound per conversation turn and looked up by the tools through the
+ * LangChain4j memoryId, so concurrent conversations never see each other's files or
+ * tool executions, regardless of which thread runs the tool callback.
+ *
+ * Holds:
+ * - The conversation ID the turn belongs to
+ * - Files uploaded with the message, keyed by standardized path
+ * - Ledger of tools executed during the turn
+ * - Deadline after which tools should not start new work
+ * - Background preparations of the uploads (PDF text, base64 image data), started when
+ *   the turn begins so that they overlap with the first model call
+ * - Images attached by tools in raw mode, shown to the model after the tool results
+ */
+public class ToolInvocationContext {
+
+    private final String conversationId;
+    private final Map<String, MultipartFile> files;
+    private final List<String> executedTools = new CopyOnWriteArrayList<>();
+    private final Instant deadline;
+    private final Map<String, CompletableFuture<PdfProcessingResult>> pdfExtractions = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> imageData = new ConcurrentHashMap<>();
+    private final Map<String, ImageContent> attachments = new ConcurrentHashMap<>();
+
+    public ToolInvocationContext(String conversationId, Map<String, MultipartFile> files, Duration timeBudget) {
+        this.conversationId = conversationId;
+        this.files = files != null ? Map.copyOf(files) : Map.of();
+        this.deadline = Instant.now().plus(timeBudget);
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    /**
+     * Gets a file uploaded with this turn
+     *
+     * @param filePath The standardized file path (format: /uploaded/{conversationId}/{filename})
+     * @return The file, or null if no file was uploaded under that path
+     */
+    public MultipartFile getFile(String filePath) {
+        return files.get(filePath);
+    }
+
+    public Map<String, MultipartFile> getFiles() {
+        return files;
+    }
+
+    /**
+     * Records that a tool was executed during this turn
+     *
+     * @param toolName Name of the executed tool
+     */
+    public void recordToolExecution(String toolName) {
+        executedTools.add(toolName);
+    }
+
+    /**
+     * Gets the tools executed during this turn, in execution order
+     *
+     * @return Copy of the executed tool names
+     */
+    public List<String> getExecutedTools() {
+        return new ArrayList<>(executedTools);
+    }
+
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Checks whether the turn has run past its deadline
+     *
+     * @return true if tools should no longer start new work
+     */
+    public boolean isDeadlineExceeded() {
+        return Instant.now().isAfter(deadline);
+    }
+
+    /**
+     * Registers the background text extraction of an uploaded PDF
+     *
+     * @param filePath The standardized file path
+     * @param extraction The running extraction
+     */
+    public void putPdfExtraction(String filePath, CompletableFuture<PdfProcessingResult> extraction) {
+        pdfExtractions.put(filePath, extraction);
+    }
+
+    /**
+     * Gets the background text extraction of an uploaded PDF
+     *
+     * @param filePath The standardized file path
+     * @return The extraction, or null if none was started for the file
+     */
+    public CompletableFuture<PdfProcessingResult> getPdfExtraction(String filePath) {
+        return pdfExtractions.get(filePath);
+    }
+
+    /**
+     * Registers the background base64 encoding of an uploaded image
+     *
+     * @param filePath The standardized file path
+     * @param encoding The running encoding
+     */
+    public void putImageData(String filePath, CompletableFuture<String> encoding) {
+        imageData.put(filePath, encoding);
+    }
+
+    /**
+     * Gets the background base64 encoding of an uploaded image
+     *
+     * @param filePath The standardized file path
+     * @return The encoding, or null if none was started for the file
+     */
+    public CompletableFuture<String> getImageData(String filePath) {
+        return imageData.get(filePath);
+    }
+
+    /**
+     * Attaches an image for the conversation model to look at after the current tool results
+     *
+     * @param fileName Name the image is labelled with (tools may attach images concurrently,
+     *                 so the model tells them apart by name rather than by order)
+     * @param image The image
+     */
+    public void attachImage(String fileName, ImageContent image) {
+        attachments.put(fileName, image);
+    }
+
+    /**
+     * Gets the images attached during this turn
+     *
+     * @return The images by file name, sorted by name
+     */
+    public Map<String, ImageContent> getAttachments() {
+        return new TreeMap<>(attachments);
+    }
+
+    /**
+     * Cancels the background preparations that have not completed
+     *
+     * Extractions already running are not interrupted; they finish and fill the
+     * extraction cache, but nothing waits for them any more.
+     */
+    public void cancelPreparations() {
+        pdfExtractions.values().forEach(extraction -> extraction.cancel(false));
+        imageData.values().forEach(encoding -> encoding.cancel(false));
+    }
+}